@@ -1,20 +1,26 @@
 package configurator.bean;
 
+import configurator.bean.accessor.AccessorFactory;
+import configurator.bean.accessor.MethodHandleAccessorFactory;
+import configurator.bean.accessor.Setter;
 import configurator.bean.annotation.Component;
 import configurator.bean.annotation.Destroy;
-import configurator.bean.annotation.Init;
 import configurator.bean.annotation.Value;
 import configurator.bean.converter.*;
 import configurator.bean.exception.CircularReferenceException;
+import configurator.conf.ReloadListener;
 import configurator.conf.Source;
 import configurator.inject.Injector;
-import org.reflections.ReflectionUtils;
 import configurator.util.Util;
 
 import javax.annotation.Resource;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
@@ -25,20 +31,67 @@ import java.util.stream.Collectors;
 public final class BeanContainer {
 
     private final Source source;
-    private final Map<String, BeanWrapper> nameMap = new HashMap<>();
-    private final Map<Class, BeanWrapper> classMap = new HashMap<>();
+    private final Map<String, BeanWrapper> nameMap = new ConcurrentHashMap<>();
+    private final Map<Class, BeanWrapper> classMap = new ConcurrentHashMap<>();
+    /**
+     * 类型索引: 类型(包括所有父类及接口) -> 可以赋值给此类型的{@link BeanWrapper}，按注册顺序排列.
+     * <p>value为不可变链表，在持有锁的前提下整体替换(copy-on-write)，读取不需要加锁.</p>
+     */
+    private final Map<Class, List<BeanWrapper>> typeIndex = new ConcurrentHashMap<>();
+    /**
+     * 类型 -> 可能支持此类型的{@link TypeConverter}: 支持此类型的单例以及所有的prototype(每次使用时重新创建并判断)，
+     * 在注册或销毁bean时清空.
+     */
+    private final Map<Class, List<BeanWrapper>> converterCache = new ConcurrentHashMap<>();
+    /**
+     * 每次清空{@link #converterCache}时加1，计算期间发生过清空的结果不放入缓存.只在持有锁时访问.
+     */
+    private long converterGeneration;
+    /**
+     * 保护注册及销毁，已创建的单例读取不需要此锁.单例创建权的归属由各自的{@link BeanWrapper}保护.
+     */
     private final Object monitor = new Object();
+    /**
+     * 正在等待其它线程创建单例的线程 -> 其等待的{@link BeanWrapper}，用于检测跨线程的循环等待.
+     */
+    private final Map<Thread, BeanWrapper> waiting = new ConcurrentHashMap<>();
+    /**
+     * 当前线程正在创建的prototype bean，用于检测prototype之间的循环引用.
+     */
+    private final ThreadLocal<Set<BeanWrapper>> prototypesInCreation = ThreadLocal.withInitial(HashSet::new);
     /**
      * @see Injector#allowCircularReference(boolean)
      */
     private final boolean allowCircularReference;
+    /**
+     * @see Injector#accessorFactory(AccessorFactory)
+     */
+    private final AccessorFactory accessorFactory;
+
+    /**
+     * 配置key(前缀搜索时为a.b.*) -> 注入了此key的单例bean及注入点，注入时建立，用于{@link #refresh()}.
+     */
+    private final Map<String, List<ValueBinding>> valueBindings = new HashMap<>();
+    /**
+     * 保护{@link #valueBindings}并串行化{@link #refresh()}.
+     */
+    private final Object refreshLock = new Object();
+    private final ReloadListener reloadListener = source -> refresh();
 
     private volatile boolean closed = false;
 
     public BeanContainer(Source source, boolean allowCircularReference) {
+        this(source, allowCircularReference, new MethodHandleAccessorFactory());
+    }
+
+    public BeanContainer(Source source, boolean allowCircularReference, AccessorFactory accessorFactory) {
         this.source = source;
         this.allowCircularReference = allowCircularReference;
+        this.accessorFactory = Objects.requireNonNull(accessorFactory);
         registerTypeConvertersInternal();
+        if (source != null) {
+            source.addReloadListener(reloadListener);
+        }
     }
 
     /**
@@ -123,9 +176,77 @@ public final class BeanContainer {
             BeanWrapper beanWrapper = newBeanWrapper(beanName, scope, beanClass);
             nameMap.put(beanName, beanWrapper);
             classMap.put(beanClass, beanWrapper);
+            indexTypes(beanWrapper);
+            clearConverterCache();
         }
     }
 
+    /**
+     * 将beanWrapper加入其targetClass的所有父类及接口的类型索引.
+     * <p>此方法一定是在持有锁的前提下执行的.</p>
+     */
+    private void indexTypes(BeanWrapper beanWrapper) {
+        for (Class type : getAllTypes(beanWrapper.getTargetClass())) {
+            List<BeanWrapper> old = typeIndex.get(type);
+            List<BeanWrapper> candidates = new ArrayList<>(old == null ? 1 : old.size() + 1);
+            if (old != null) {
+                candidates.addAll(old);
+            }
+            candidates.add(beanWrapper);
+            typeIndex.put(type, Collections.unmodifiableList(candidates));
+        }
+    }
+
+    /**
+     * 将beanWrapper从类型索引中移除.
+     * <p>此方法一定是在持有锁的前提下执行的.</p>
+     */
+    private void unindexTypes(BeanWrapper beanWrapper) {
+        for (Class type : getAllTypes(beanWrapper.getTargetClass())) {
+            List<BeanWrapper> old = typeIndex.get(type);
+            if (old == null) {
+                continue;
+            }
+            List<BeanWrapper> candidates = new ArrayList<>(old);
+            candidates.remove(beanWrapper);
+            if (candidates.isEmpty()) {
+                typeIndex.remove(type);
+            } else {
+                typeIndex.put(type, Collections.unmodifiableList(candidates));
+            }
+        }
+    }
+
+    /**
+     * 获得clazz本身、其所有父类(包括{@link Object})以及所有直接或间接实现的接口.
+     */
+    private Set<Class> getAllTypes(Class clazz) {
+        Set<Class> types = new LinkedHashSet<>();
+        Deque<Class> queue = new ArrayDeque<>();
+        queue.add(clazz);
+        while (!queue.isEmpty()) {
+            Class type = queue.poll();
+            if (types.add(type)) {
+                Class superClass = type.getSuperclass();
+                if (superClass != null) {
+                    queue.add(superClass);
+                }
+                Collections.addAll(queue, type.getInterfaces());
+            }
+        }
+        return types;
+    }
+
+    /**
+     * 从类型索引中获取可以赋值给type的{@link BeanWrapper}.
+     *
+     * @return {@link List}，不会为null
+     */
+    private List<BeanWrapper> getCandidates(Class type) {
+        List<BeanWrapper> candidates = typeIndex.get(type);
+        return (candidates == null ? Collections.emptyList() : candidates);
+    }
+
     /**
      * 根据bean名称寻找bean实例，lazy-init.
      *
@@ -137,14 +258,8 @@ public final class BeanContainer {
         if (Util.isEmpty(beanName)) {
             throw new IllegalArgumentException("Param beanName can't be null or empty.");
         }
-        Object result = null;
-        synchronized (monitor) {
-            BeanWrapper wrapper = nameMap.get(beanName);
-            if (wrapper != null) {
-                result = loadBean(wrapper);
-            }
-        }
-        return result;
+        BeanWrapper wrapper = nameMap.get(beanName);
+        return (wrapper == null ? null : loadBean(wrapper));
     }
 
     /**
@@ -155,20 +270,8 @@ public final class BeanContainer {
     public <T> T get(Class<T> beanClass) {
         assertNotClosed();
         Objects.requireNonNull(beanClass);
-        List<BeanWrapper<T>> candidates = new ArrayList<>();
-        T result = null;
-        synchronized (monitor) {
-            for (Map.Entry<Class, BeanWrapper> entry : classMap.entrySet()) {
-                if (beanClass.isAssignableFrom(entry.getKey())) {
-                    candidates.add(entry.getValue());
-                }
-            }
-            BeanWrapper<T> beanWrapper = findEligibleCandidate(candidates, beanClass);
-            if (beanWrapper != null) {
-                result = (T) loadBean(beanWrapper);
-            }
-        }
-        return result;
+        BeanWrapper<T> beanWrapper = findEligibleCandidate(getCandidates(beanClass), beanClass);
+        return (beanWrapper == null ? null : (T) loadBean(beanWrapper));
     }
 
     /**
@@ -181,13 +284,13 @@ public final class BeanContainer {
      *
      * @throws IllegalStateException 如果发现多个候选者
      */
-    private <T> BeanWrapper findEligibleCandidate(List<BeanWrapper<T>> candidates, Class<T> requiredType) {
+    private <T> BeanWrapper findEligibleCandidate(List<BeanWrapper> candidates, Class<T> requiredType) {
         int size = candidates.size();
-        BeanWrapper<T> result = null;
+        BeanWrapper result = null;
         if (size == 1) {
             result = candidates.get(0);
         } else if (size > 1) {
-            for (BeanWrapper<T> candidate : candidates) {
+            for (BeanWrapper candidate : candidates) {
                 if (candidate.getTargetClass() == requiredType) {
                     result = candidate;
                     break;
@@ -211,20 +314,16 @@ public final class BeanContainer {
     public <T> List<T> getBeansWithType(Class<T> clazz) {
         assertNotClosed();
         Objects.requireNonNull(clazz);
-        List<T> beans = new LinkedList<>();
-        synchronized (monitor) {
-            classMap.forEach((key, value) -> {
-                if (clazz.isAssignableFrom(key)) {
-                    beans.add((T) loadBean(value));
-                }
-            });
+        List<BeanWrapper> candidates = getCandidates(clazz);
+        List<T> beans = new ArrayList<>(candidates.size());
+        for (BeanWrapper candidate : candidates) {
+            beans.add((T) loadBean(candidate));
         }
         return beans;
     }
 
     /**
-     * 初始化{@link BeanWrapper}.注意:
-     * <p>此方法一定是在持有锁的前提下执行的.</p>
+     * 初始化{@link BeanWrapper}.已经创建完成的单例直接返回，不需要获取任何锁.
      *
      * @param beanWrapper {@linkplain BeanWrapper} 非空
      * @return 初始化的bean实例
@@ -237,27 +336,263 @@ public final class BeanContainer {
      */
     private <T> T loadBean(BeanWrapper<T> beanWrapper) {
         T result = beanWrapper.getTarget();
-        if (beanWrapper.isCurrentlyInCreation()) {
-            if (!allowCircularReference || (result == null) || beanWrapper.getScope() != Scope.SINGLETON) {
-                throw new CircularReferenceException("Circular reference bean '" + beanWrapper.getBeanName() + "'.");
-            }
+        if (result != null) {
             return result;
         }
-        if (result == null || beanWrapper.getScope() == Scope.PROTOTYPE) {
-            beanWrapper.setCurrentlyInCreation(true);
-            result = createBean(beanWrapper);
-            if (result != null && beanWrapper.getScope() == Scope.SINGLETON) {
-                beanWrapper.setTarget(result);
+        if (beanWrapper.getScope() == Scope.PROTOTYPE) {
+            return loadPrototype(beanWrapper);
+        }
+        return loadSingleton(beanWrapper);
+    }
+
+    /**
+     * 创建prototype bean，不需要加锁，只需检测当前线程内的循环引用.
+     */
+    private <T> T loadPrototype(BeanWrapper<T> beanWrapper) {
+        Set<BeanWrapper> inCreation = prototypesInCreation.get();
+        if (!inCreation.add(beanWrapper)) {
+            throw new CircularReferenceException("Circular reference bean '" + beanWrapper.getBeanName() + "'.");
+        }
+        try {
+            return createBean(beanWrapper, null);
+        } finally {
+            inCreation.remove(beanWrapper);
+        }
+    }
+
+    /**
+     * 创建单例.同一时刻只有一个线程(creator)可以创建某个单例，其它线程在此单例的{@link BeanWrapper}上等待其完成，
+     * 不同的单例在各自的锁上并行创建，完成时只唤醒等待此单例的线程.
+     * <p>如果当前线程正是creator，或者creator(间接地)正在等待当前线程，那么便构成了循环引用，此时按照
+     * {@link #allowCircularReference}返回提前暴露的引用或者抛出{@link CircularReferenceException}.</p>
+     */
+    private <T> T loadSingleton(BeanWrapper<T> beanWrapper) {
+        Thread current = Thread.currentThread();
+        synchronized (beanWrapper) {
+            while (true) {
+                T result = beanWrapper.getTarget();
+                if (result != null) {
+                    return result;
+                }
+                Thread creator = beanWrapper.getCreator();
+                if (creator == null) {
+                    beanWrapper.setCreator(current);
+                    break;
+                }
+                if (creator == current) {
+                    return earlyReference(beanWrapper);
+                }
+                //先登记再检测: 两个线程同时形成等待环时，后登记的一方一定能看到另一方的登记
+                waiting.put(current, beanWrapper);
+                try {
+                    if (isWaitingFor(creator, current)) {
+                        return earlyReference(beanWrapper);
+                    }
+                    beanWrapper.wait();
+                } catch (InterruptedException e) {
+                    current.interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for bean '" + beanWrapper.getBeanName() + "'.", e);
+                } finally {
+                    waiting.remove(current);
+                }
+            }
+        }
+        T result = null;
+        List<ValueBinding> bindings = new ArrayList<>();
+        long start = System.nanoTime();
+        try {
+            result = createBean(beanWrapper, bindings);
+        } finally {
+            synchronized (beanWrapper) {
+                if (result != null) {
+                    beanWrapper.setCreationNanos(System.nanoTime() - start);
+                    beanWrapper.setTarget(result);
+                }
+                beanWrapper.setEarlyTarget(null);
+                beanWrapper.setCreator(null);
+                beanWrapper.notifyAll();
+            }
+        }
+        if (result != null) {
+            bind(result, bindings);
+        }
+        return result;
+    }
+
+    /**
+     * 提前创建所有{@link Scope#SINGLETON}的bean，阻塞直到全部完成.
+     * <p>依赖图由构造器参数、初始化方法参数以及{@link Resource}注入点得出，环中的回边被忽略，互不依赖的bean在
+     * executor中并行创建，某个bean的所有(非回边)依赖创建完成之后才会提交此bean.循环引用的语义与{@link #get(Class)}
+     * 完全一致，因为最终仍由{@link #loadBean(BeanWrapper)}创建.</p>
+     *
+     * @param executor 执行创建任务的{@link Executor}
+     * @throws IllegalStateException 如果某个bean创建失败
+     */
+    public void preInstantiateSingletons(Executor executor) {
+        assertNotClosed();
+        Objects.requireNonNull(executor);
+        List<BeanWrapper> singletons = new ArrayList<>();
+        for (BeanWrapper beanWrapper : classMap.values()) {
+            if (beanWrapper.getScope() == Scope.SINGLETON) {
+                singletons.add(beanWrapper);
+            }
+        }
+        Map<BeanWrapper, Set<BeanWrapper>> graph = new HashMap<>();
+        for (BeanWrapper beanWrapper : singletons) {
+            graph.put(beanWrapper, resolveSingletonDependencies(getPlan(beanWrapper)));
+        }
+        Map<BeanWrapper, CompletableFuture<Void>> futures = new HashMap<>();
+        Set<BeanWrapper> visiting = new HashSet<>();
+        for (BeanWrapper beanWrapper : singletons) {
+            schedule(beanWrapper, graph, futures, visiting, executor);
+        }
+        try {
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[futures.size()])).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 按深度优先的顺序为beanWrapper及其依赖生成创建任务，visiting中的依赖构成环，忽略此回边.
+     */
+    private CompletableFuture<Void> schedule(BeanWrapper beanWrapper, Map<BeanWrapper, Set<BeanWrapper>> graph,
+                                             Map<BeanWrapper, CompletableFuture<Void>> futures,
+                                             Set<BeanWrapper> visiting, Executor executor) {
+        CompletableFuture<Void> future = futures.get(beanWrapper);
+        if (future != null) {
+            return future;
+        }
+        visiting.add(beanWrapper);
+        List<CompletableFuture<Void>> dependencies = new ArrayList<>();
+        for (BeanWrapper dependency : graph.get(beanWrapper)) {
+            if (!visiting.contains(dependency)) {
+                dependencies.add(schedule(dependency, graph, futures, visiting, executor));
+            }
+        }
+        visiting.remove(beanWrapper);
+        Runnable task = () -> {
+            try {
+                loadBean(beanWrapper);
+            } catch (RuntimeException e) {
+                throw new IllegalStateException("Pre-instantiate bean '" + beanWrapper.getBeanName() + "' failed.", e);
+            }
+        };
+        future = (dependencies.isEmpty() ? CompletableFuture.runAsync(task, executor) :
+                CompletableFuture.allOf(dependencies.toArray(new CompletableFuture[dependencies.size()]))
+                        .thenRunAsync(task, executor));
+        futures.put(beanWrapper, future);
+        return future;
+    }
+
+    /**
+     * 解析plan依赖的单例，无法确定(找不到或者有多个候选者)的依赖留给创建时报错.
+     */
+    private Set<BeanWrapper> resolveSingletonDependencies(InjectionPlan plan) {
+        Set<BeanWrapper> result = new LinkedHashSet<>();
+        addArgumentDependencies(plan.constructorArgs, result);
+        for (InjectionPlan.LifecycleMethod initMethod : plan.initMethods) {
+            addArgumentDependencies(initMethod.args, result);
+        }
+        List<InjectionPlan.ResourcePoint> points = new ArrayList<>(plan.resourceFields);
+        points.addAll(plan.resourceMethods);
+        for (InjectionPlan.ResourcePoint point : points) {
+            String resourceName = point.resource.name();
+            Class type = point.resource.type();
+            BeanWrapper dependency = null;
+            if (type == Object.class || !Util.isEmpty(resourceName)) {
+                dependency = nameMap.get(Util.isEmpty(resourceName) ? point.targetName : resourceName);
+            }
+            if (dependency == null && type != Object.class) {
+                dependency = findDependency(type);
             }
-            beanWrapper.setCurrentlyInCreation(false);
+            addSingleton(dependency, result);
         }
         return result;
     }
 
+    private void addArgumentDependencies(InjectionPlan.Argument[] arguments, Set<BeanWrapper> result) {
+        for (InjectionPlan.Argument argument : arguments) {
+            if (argument.value == null && !argument.type.isPrimitive()) {
+                BeanWrapper dependency = (argument.name == null ? null : nameMap.get(argument.name));
+                addSingleton(dependency != null ? dependency : findDependency(argument.type), result);
+            }
+        }
+    }
+
+    private BeanWrapper findDependency(Class type) {
+        try {
+            return findEligibleCandidate(getCandidates(type), type);
+        } catch (IllegalStateException e) {
+            return null;
+        }
+    }
+
+    private void addSingleton(BeanWrapper dependency, Set<BeanWrapper> result) {
+        if (dependency != null && dependency.getScope() == Scope.SINGLETON) {
+            result.add(dependency);
+        }
+    }
+
+    /**
+     * 获取已创建的单例的创建耗时.
+     *
+     * @return bean名称 -> 纳秒，包括同步创建其尚未创建的依赖所花费的时间
+     */
+    public Map<String, Long> getCreationTimings() {
+        Map<String, Long> timings = new TreeMap<>();
+        for (BeanWrapper beanWrapper : classMap.values()) {
+            long nanos = beanWrapper.getCreationNanos();
+            if (nanos >= 0) {
+                timings.put(beanWrapper.getBeanName(), nanos);
+            }
+        }
+        return timings;
+    }
+
+    /**
+     * 循环引用时的提前暴露的引用.调用方需持有beanWrapper的锁.
+     *
+     * @throws CircularReferenceException 如果不允许循环引用或者尚未构造完成
+     */
+    private <T> T earlyReference(BeanWrapper<T> beanWrapper) {
+        T early = beanWrapper.getEarlyTarget();
+        if (!allowCircularReference || early == null) {
+            throw new CircularReferenceException("Circular reference bean '" + beanWrapper.getBeanName() + "'.");
+        }
+        return early;
+    }
+
+    /**
+     * 沿着"等待的bean -> 其creator"链判断from线程是否(间接地)在等待target线程.
+     * <p>{@link #waiting}及creator都可以无锁读取，链上的bean的锁不需要持有.</p>
+     */
+    private boolean isWaitingFor(Thread from, Thread target) {
+        Thread thread = from;
+        for (int i = 0, l = waiting.size(); i <= l && thread != null; i++) {
+            BeanWrapper awaited = waiting.get(thread);
+            if (awaited == null) {
+                return false;
+            }
+            thread = awaited.getCreator();
+            if (thread == target) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * 将{@link BeanWrapper}的targetClass属性拼为字符串.
      */
-    private <T> String getCandidatesInfo(List<BeanWrapper<T>> candidates) {
+    private String getCandidatesInfo(List<BeanWrapper> candidates) {
         List<String> classes = candidates.stream().map(beanWrapper -> beanWrapper.getTargetClass().getName()).
                 collect(Collectors.toList());
         return ("[" + String.join(",", classes) + "}");
@@ -274,28 +609,44 @@ public final class BeanContainer {
 
     /**
      * 创建bean实例.
+     *
+     * @param bindings 单例bean的{@link Value}注入点写入其中，发布之后再记录，prototype为null
      */
-    private <T> T createBean(BeanWrapper<T> beanWrapper) {
-        Class<T> beanClass = beanWrapper.getTargetClass();
-        T instance = newInstance(beanClass);
+    private <T> T createBean(BeanWrapper<T> beanWrapper, List<ValueBinding> bindings) {
+        InjectionPlan plan = getPlan(beanWrapper);
+        T instance = newInstance(beanWrapper.getTargetClass(), plan);
         if (instance != null) {
             if (allowCircularReference && beanWrapper.getScope() == Scope.SINGLETON) {
                 //earlyReference
-                beanWrapper.setTarget(instance);
+                synchronized (beanWrapper) {
+                    beanWrapper.setEarlyTarget(instance);
+                }
             }
             if (source != null) {
-                injectConfs(instance, beanClass);
+                injectConfs(instance, plan, bindings == null ? null : beanWrapper, bindings);
             }
-            injectDependencies(instance, beanClass);
+            injectDependencies(instance, plan);
             if (instance instanceof BeanContainerAware) {
                 BeanContainerAware aware = (BeanContainerAware) instance;
                 aware.setBeanContainer(this);
             }
-            invokeInitMethodsIfNecessary(beanClass, instance);
+            invokeInitMethodsIfNecessary(plan, instance);
         }
         return instance;
     }
 
+    /**
+     * 获取bean的{@link InjectionPlan}，第一次使用时解析.并发解析的结果是等价的，所以这里不需要加锁.
+     */
+    private InjectionPlan getPlan(BeanWrapper<?> beanWrapper) {
+        InjectionPlan plan = beanWrapper.getPlan();
+        if (plan == null) {
+            plan = InjectionPlan.build(beanWrapper.getTargetClass(), source != null, accessorFactory);
+            beanWrapper.setPlan(plan);
+        }
+        return plan;
+    }
+
     /**
      * 销毁beanClass对应的bean，注意，不同于{@link #get(Class)}，本方法不会销毁
      * 当前类的子类的bean.
@@ -308,7 +659,11 @@ public final class BeanContainer {
         BeanWrapper<T> beanWrapper;
         synchronized (monitor) {
             beanWrapper = classMap.remove(beanClass);
-            nameMap.remove(beanWrapper.getBeanName());
+            if (beanWrapper != null) {
+                nameMap.remove(beanWrapper.getBeanName());
+                unindexTypes(beanWrapper);
+                clearConverterCache();
+            }
         }
         if (beanWrapper != null && destroyHint) {
             invokeDestroyMethodsIfNecessary(beanWrapper);
@@ -335,7 +690,11 @@ public final class BeanContainer {
         BeanWrapper beanWrapper;
         synchronized (monitor) {
             beanWrapper = nameMap.remove(name);
-            classMap.remove(beanWrapper.getTargetClass());
+            if (beanWrapper != null) {
+                classMap.remove(beanWrapper.getTargetClass());
+                unindexTypes(beanWrapper);
+                clearConverterCache();
+            }
         }
         if (beanWrapper != null && destroyHint) {
             invokeDestroyMethodsIfNecessary(beanWrapper);
@@ -352,20 +711,12 @@ public final class BeanContainer {
     /**
      * 如果bean中定义了{@link configurator.bean.annotation.Init}方法，调用之.
      *
-     * @param beanClass {@link Class} bean的类型
-     * @param instance  bean实例
+     * @param plan     {@link InjectionPlan} bean的注入计划
+     * @param instance bean实例
      */
-    private void invokeInitMethodsIfNecessary(Class beanClass, Object instance) {
-        Set<Method> methods = ReflectionUtils.getAllMethods(beanClass, ReflectionUtils.withAnnotation(Init.class));
-        if (methods.size() > 0) {
-            List<Method> sorted = new ArrayList<>(methods);
-            //倒序排列
-            sorted.sort((o1, o2) -> o2.getAnnotation(Init.class).order() - o1.getAnnotation(Init.class).order());
-            sorted.forEach(method -> {
-                Parameter[] parameters = method.getParameters();
-                Object[] args = parameters.length > 0 ? resolveArgs(parameters) : new Object[0];
-                invokeMethod(method, instance, args);
-            });
+    private void invokeInitMethodsIfNecessary(InjectionPlan plan, Object instance) {
+        for (InjectionPlan.LifecycleMethod initMethod : plan.initMethods) {
+            invokeMethod(initMethod, instance, resolveArgs(initMethod.args));
         }
     }
 
@@ -378,19 +729,19 @@ public final class BeanContainer {
      * <li>最终还是没有找到，抛出{@link IllegalStateException}.</li>
      * </ul>
      *
-     * @param parameters 参数列表，长度大于零
+     * @param arguments 参数列表
      * @return 解析得到参数数组
      */
-    private Object[] resolveArgs(Parameter[] parameters) {
-        int i = 0, l = parameters.length;
+    private Object[] resolveArgs(InjectionPlan.Argument[] arguments) {
+        int i = 0, l = arguments.length;
         Object[] result = new Object[l];
         for (; i < l; i++) {
-            Parameter parameter = parameters[i];
-            Object value = resolveArg(parameter);
+            InjectionPlan.Argument argument = arguments[i];
+            Object value = resolveArg(argument);
             if (value == null) {
-                throw new IllegalStateException("Can't find eligible value for parameter: " + parameter + ".");
+                throw new IllegalStateException("Can't find eligible value for parameter: " + argument.parameter + ".");
             }
-            result[i] = resolveArg(parameter);
+            result[i] = value;
         }
         return result;
     }
@@ -398,24 +749,21 @@ public final class BeanContainer {
     /**
      * 参数解析.
      *
-     * @param parameter {@link Parameter}
+     * @param argument {@link InjectionPlan.Argument}
      * @return 参数值
-     * @see #resolveArgs(Parameter[])
+     * @see #resolveArgs(InjectionPlan.Argument[])
      */
-    private Object resolveArg(Parameter parameter) {
-        Value value = parameter.getAnnotation(Value.class);
+    private Object resolveArg(InjectionPlan.Argument argument) {
         Object result = null;
-        //jdk1.8 javac -parameters参数
-        String name = (parameter.isNamePresent() ? parameter.getName() : null);
-        if (value != null) {
-            result = resolveConfByValue(parameter, name, parameter.getType(), parameter.getParameterizedType());
+        if (argument.value != null) {
+            result = resolveConfByValue(argument.value);
         } else {
-            Class<?> type = parameter.getType();
+            Class<?> type = argument.type;
             if (type.isPrimitive()) {
-                throw new IllegalStateException("Can't inject to primitive type: " + parameter + ".");
+                throw new IllegalStateException("Can't inject to primitive type: " + argument.parameter + ".");
             }
-            if (name != null) {
-                result = get(name);
+            if (argument.name != null) {
+                result = get(argument.name);
             }
             if (result == null) {
                 result = get(type);
@@ -446,124 +794,187 @@ public final class BeanContainer {
     }
 
     /**
-     * 使用给定的{@linkplain Class}的无参构造器构造一个对象.
+     * 使用{@link InjectionPlan}中解析好的构造器构造一个对象.
      *
      * @param beanClass {@link Class} bean类型
      * @throws IllegalStateException 如果构造失败
      */
-    private <T> T newInstance(Class<T> beanClass) {
-        T instance;
+    private <T> T newInstance(Class<T> beanClass, InjectionPlan plan) {
+        Object[] args = resolveArgs(plan.constructorArgs);
         try {
-            Constructor<?>[] constructors = beanClass.getConstructors();
-            int length = constructors.length;
-            if (length == 0) {
-                throw new IllegalStateException("There are no public constructors in " + beanClass.getName() + ".");
-            }
-            if (length > 1) {
-                throw new IllegalStateException("There are more than one public constructors in " + beanClass.getName() + ".");
-            }
-            Constructor constructor = constructors[0];
-            Parameter[] parameters = constructor.getParameters();
-            Object[] args = resolveArgs(parameters);
-            instance = (T) constructor.newInstance(args);
-        } catch (InstantiationException e) {
-            throw new IllegalStateException("Construct bean failed, maybe there is no default constructor.", e);
-        } catch (IllegalAccessException e) {
-            throw new IllegalStateException("Construct bean failed, maybe there is no public constructor.", e);
-        } catch (InvocationTargetException e) {
+            return (T) plan.instantiator.newInstance(args);
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
             throw new IllegalStateException("Exception occurred when constructing bean " + beanClass.getName() + ".", e);
         }
-        return instance;
     }
 
     /**
      * 对bean中所有标注了{@link Value}的{@link java.lang.reflect.Field}和{@link java.lang.reflect.Method}进行注入.
+     *
+     * @param singleton 单例bean的{@link BeanWrapper}，非null时将注入点写入bindings，以便发布之后由{@link #refresh()}更新
      */
-    private void injectConfs(Object instance, Class beanClass) {
-        injectConfByField(instance, beanClass);
-        injectConfByMethod(instance, beanClass);
+    private void injectConfs(Object instance, InjectionPlan plan, BeanWrapper<?> singleton,
+                             List<ValueBinding> bindings) {
+        injectConfs(instance, plan.valueFields, singleton, bindings);
+        injectConfs(instance, plan.valueMethods, singleton, bindings);
     }
 
     /**
-     * 对标注在{@link Field}上的{@link Value}进行注入.
+     * 对标注在{@link Field}及{@link java.lang.reflect.Method}上的{@link Value}进行注入.
      */
-    private void injectConfByField(Object instance, Class<?> beanClass) {
-        Set<Field> fields = ReflectionUtils.getAllFields(beanClass, ReflectionUtils.withAnnotation(Value.class));
-        for (Field field : fields) {
-            Object result = resolveConfByValue(field, field.getName(), field.getType(), field.getGenericType());
+    private void injectConfs(Object instance, List<InjectionPlan.ValuePoint> points, BeanWrapper<?> singleton,
+                             List<ValueBinding> bindings) {
+        for (InjectionPlan.ValuePoint point : points) {
+            Object snapshot = (singleton == null || point.find ? null : snapshotOf(point));
+            Object result = resolveConfByValue(point);
             if (result != null) {
-                setFieldValue(field, instance, result);
+                setValue(point.setter, point, instance, result);
+            }
+            if (singleton != null) {
+                bindings.add(new ValueBinding(singleton, point, point.find ? result : snapshot));
             }
         }
     }
 
     /**
-     * 对标注在{@link java.lang.reflect.Method}上的{@link Value}进行注入.
+     * 单例发布之后记录其注入点.注入与记录之间{@link Source}可能已经重新加载，而那次{@link #refresh()}看不到这些注入点，
+     * 所以记录时与当前配置比较一次，变化的注入点立即重新注入.
+     *
+     * @throws IllegalStateException 如果重新注入失败
      */
-    private void injectConfByMethod(Object instance, Class beanClass) {
-        Set<Method> methods = ReflectionUtils.getAllMethods(beanClass, ReflectionUtils.withAnnotation(Value.class));
-        for (Method method : methods) {
-            int count = method.getParameterCount();
-            if (count != 1) {
-                throw new IllegalStateException("Unsupported method parameter count: " + count + ", method: "
-                        + method.toString() + ".");
-            }
-            Class[] methodClasses = method.getParameterTypes();
-            Type[] methodTypes = method.getGenericParameterTypes();
-            Object result = resolveConfByValue(method, resolveSetterMethodName(method), methodClasses[0], methodTypes[0]);
-            if (result != null) {
-                invokeMethod(method, instance, result);
+    private void bind(Object instance, List<ValueBinding> bindings) {
+        if (bindings.isEmpty()) {
+            return;
+        }
+        RuntimeException failure = null;
+        synchronized (refreshLock) {
+            for (ValueBinding binding : bindings) {
+                valueBindings.computeIfAbsent(binding.point.key, key -> new ArrayList<>(1)).add(binding);
+                try {
+                    Object current = snapshotOf(binding.point);
+                    if (!Objects.equals(current, binding.snapshot)) {
+                        reinject(binding, instance, current);
+                    }
+                } catch (RuntimeException e) {
+                    failure = addFailure(failure, binding.point, e);
+                }
             }
         }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * 重新注入并记录新的配置.
+     *
+     * @param current {@link #snapshotOf(InjectionPlan.ValuePoint)}
+     */
+    private void reinject(ValueBinding binding, Object instance, Object current) {
+        InjectionPlan.ValuePoint point = binding.point;
+        Object result = resolveConfByValue(point);
+        if (result != null) {
+            setValue(point.setter, point, instance, result);
+        }
+        binding.snapshot = current;
+    }
+
+    private static RuntimeException addFailure(RuntimeException failure, InjectionPlan.ValuePoint point,
+                                               RuntimeException e) {
+        if (failure == null) {
+            return new IllegalStateException("Refresh '" + point + "' failed.", e);
+        }
+        failure.addSuppressed(e);
+        return failure;
+    }
+
+    /**
+     * 注入点所依赖的原始配置，用于判断配置是否变化: 前缀搜索为搜索结果，否则为配置的值，不存在时为null.
+     */
+    private Object snapshotOf(InjectionPlan.ValuePoint point) {
+        if (point.find) {
+            return source.find(point.prefix);
+        }
+        return (source.contains(point.key) ? source.get(point.key) : null);
     }
 
     /**
-     * 根据setter方法名得到key.
+     * 增量注入: 找出值发生变化的配置key，只对注入了这些key的单例bean的注入点重新注入，其它bean及注入点不受影响.
+     * {@link Source}重新加载之后自动调用.
+     * <p>重新注入只执行字段赋值或者setter方法，不会再次调用初始化方法，构造器及初始化方法的参数也不会更新.
+     * 某个注入点失败时继续处理其它的注入点，最后抛出第一个异常.</p>
      *
-     * @param method {@link Method}
+     * @return 值发生变化的key(前缀搜索为a.b.*形式)
+     * @throws IllegalStateException 如果重新注入失败
      */
-    private String resolveSetterMethodName(Method method) {
-        String name = null;
-        String methodName = method.getName();
-        if (methodName.startsWith("set") && methodName.length() > 3) {
-            name = methodName.substring(3, methodName.length()).toLowerCase();
+    public Set<String> refresh() {
+        assertNotClosed();
+        Set<String> changed = new LinkedHashSet<>();
+        if (source == null) {
+            return changed;
         }
-        return name;
+        RuntimeException failure = null;
+        synchronized (refreshLock) {
+            for (Iterator<List<ValueBinding>> iterator = valueBindings.values().iterator(); iterator.hasNext(); ) {
+                List<ValueBinding> bindings = iterator.next();
+                Object current = null;
+                boolean resolved = false;
+                for (Iterator<ValueBinding> it = bindings.iterator(); it.hasNext(); ) {
+                    ValueBinding binding = it.next();
+                    Object instance = binding.beanWrapper.getTarget();
+                    if (instance == null || classMap.get(binding.beanWrapper.getTargetClass()) != binding.beanWrapper) {
+                        //已被销毁
+                        it.remove();
+                        continue;
+                    }
+                    InjectionPlan.ValuePoint point = binding.point;
+                    try {
+                        if (!resolved) {
+                            current = snapshotOf(point);
+                            resolved = true;
+                        }
+                        if (Objects.equals(current, binding.snapshot)) {
+                            continue;
+                        }
+                        changed.add(point.key);
+                        reinject(binding, instance, current);
+                    } catch (RuntimeException e) {
+                        failure = addFailure(failure, point, e);
+                    }
+                }
+                if (bindings.isEmpty()) {
+                    iterator.remove();
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return changed;
     }
 
     /**
      * 根据{@link Value}得到配置的值.
      *
-     * @param object {@link AnnotatedElement} 被{@link Value}标注的元素
-     * @param name   如果{@link Value#key()}没有设置，默认用以进行查找的名字，比如{@link Field}的名称
-     * @param clazz  object的真实类型
-     * @param type   object的泛型类型
+     * @param point {@link InjectionPlan.ValuePoint} 被{@link Value}标注的元素
      */
-    private Object resolveConfByValue(AnnotatedElement object, String name, Class clazz, Type type) {
+    private Object resolveConfByValue(InjectionPlan.ValuePoint point) {
         Object result;
-        Value value = object.getAnnotation(Value.class);
-        String key = value.key();
-        if (Util.isEmpty(key)) {
-            key = name;
-            if (Util.isEmpty(key)) {
-                throw new IllegalStateException("Key must be confirmed: " + object + ".");
-            }
-        }
-        if (needFind(key)) {
-            if (!isEligibleMap(clazz, type)) {
-                throw new IllegalStateException("Inject all configurations for " + object +
-                        " failed, type Map<String,String> required.");
-            }
-            result = source.find(handlePrefix(key));
+        String key = point.key;
+        Class<?> clazz = point.type;
+        if (point.find) {
+            result = source.find(point.prefix);
         } else {
             if (!source.contains(key)) {
-                String defaultValue = value.defaultValue();
+                String defaultValue = point.value.defaultValue();
                 if (Util.isEmpty(defaultValue)) {
                     throw new IllegalStateException("No key: " + key + " and defaultValue found.");
                 }
                 result = convertTo(defaultValue, clazz);
             } else if (clazz == String[].class) {
-                String separator = value.separator();
+                String separator = point.value.separator();
                 result = Util.isEmpty(separator) ? source.getStringArray(key) :
                         source.getStringArray(key, separator);
             } else {
@@ -582,76 +993,61 @@ public final class BeanContainer {
      * @throws IllegalStateException 如果没有合适的{@link TypeConverter}可用
      */
     private Object convertTo(String value, Class requiredType) {
-        List<TypeConverter> converters = getBeansWithType(TypeConverter.class);
-        for (TypeConverter converter : converters) {
-            if (converter.support(requiredType)) {
-                Object result = converter.convert(value);
-                if (result != null) {
-                    return result;
-                }
+        for (BeanWrapper candidate : getConverters(requiredType)) {
+            TypeConverter converter = (TypeConverter) loadBean(candidate);
+            if (candidate.getScope() != Scope.SINGLETON && !converter.support(requiredType)) {
+                continue;
+            }
+            Object result = converter.convert(value);
+            if (result != null) {
+                return result;
             }
         }
         throw new IllegalStateException("No eligible TypeConverter found for type: " + requiredType.getName() + ".");
     }
 
     /**
-     * 是否需要进行前缀搜索.
-     *
-     * @return true, 如果需要
+     * 获取可能支持requiredType的{@link TypeConverter}，结果被缓存，注册或销毁bean时清空.
+     * <p>只有单例的判断结果被缓存，prototype在每次使用时重新创建.</p>
      */
-    private boolean needFind(String key) {
-        String[] parts = key.split("\\.");
-        return (parts[parts.length - 1].equals("*"));
-    }
-
-    /**
-     * 将(a.b.*)处理为(a.b).
-     */
-    private String handlePrefix(String key) {
-        String[] parts = key.split("\\.");
-        if (parts.length == 1) {
-            return "";
-        } else {
-            StringBuilder sb = new StringBuilder();
-            for (int i = 0; i < parts.length - 1; i++) {
-                sb.append(parts[i]).append(".");
+    private List<BeanWrapper> getConverters(Class requiredType) {
+        List<BeanWrapper> converters = converterCache.get(requiredType);
+        if (converters != null) {
+            return converters;
+        }
+        long generation;
+        synchronized (monitor) {
+            generation = converterGeneration;
+        }
+        converters = new ArrayList<>();
+        for (BeanWrapper candidate : getCandidates(TypeConverter.class)) {
+            if (candidate.getScope() != Scope.SINGLETON ||
+                    ((TypeConverter) loadBean(candidate)).support(requiredType)) {
+                converters.add(candidate);
             }
-            return sb.deleteCharAt(sb.length() - 1).toString();
         }
+        synchronized (monitor) {
+            if (generation == converterGeneration) {
+                converterCache.put(requiredType, converters);
+            }
+        }
+        return converters;
     }
 
     /**
-     * 给定的字段是否是{@link Map}，且泛型满足{@link Source}.find()方法的返回值.
-     *
-     * @return true，如果满足
+     * 此方法一定是在持有锁的前提下执行的.
      */
-    private boolean isEligibleMap(Class<?> clazz, Type type) {
-        if (Map.class.isAssignableFrom(clazz)) {
-            if (type instanceof ParameterizedType) {
-                ParameterizedType pt = (ParameterizedType) type;
-                Type[] types = pt.getActualTypeArguments();
-                if (types.length != 2) {
-                    return false;
-                }
-                if (!(types[0] instanceof Class) || !(types[1] instanceof Class)) {
-                    return false;
-                }
-                return (Class.class.cast(types[0]).isAssignableFrom(String.class) &&
-                        Class.class.cast(types[1]).isAssignableFrom(String.class));
-            } else {
-                //raw type
-                return true;
-            }
-        }
-        return false;
+    private void clearConverterCache() {
+        converterGeneration++;
+        converterCache.clear();
     }
 
     /**
      * 为所有标注了{@link javax.annotation.Resource}的{@link Field}和{@link Method}进行依赖注入.
      */
-    private void injectDependencies(Object instance, Class beanClass) {
-        injectDependenciesByField(instance, beanClass);
-        injectDependenciesByMethod(instance, beanClass);
+    private void injectDependencies(Object instance, InjectionPlan plan) {
+        injectDependenciesByField(instance, plan);
+        injectDependenciesByMethod(instance, plan);
     }
 
     /**
@@ -667,29 +1063,30 @@ public final class BeanContainer {
      *
      * @throws IllegalStateException 如果没有找到或找到多个候选者
      */
-    private void injectDependenciesByField(Object instance, Class beanClass) {
-        Set<Field> fields = ReflectionUtils.getAllFields(beanClass, ReflectionUtils.withAnnotation(Resource.class));
-        for (Field field : fields) {
-            Resource resource = field.getAnnotation(Resource.class);
-            Class fieldClass = field.getType();
-            Object dependency = doInjectDependency(fieldClass, field.getName(), resource);
+    private void injectDependenciesByField(Object instance, InjectionPlan plan) {
+        for (InjectionPlan.ResourcePoint point : plan.resourceFields) {
+            Object dependency = doInjectDependency(point.targetClass, point.targetName, point.resource);
             if (dependency != null) {
-                setFieldValue(field, instance, dependency);
+                setValue(point.setter, point.member, instance, dependency);
             } else {
-                throw new IllegalStateException("Can't find a candidate for field: " + field.toString() + ".");
+                throw new IllegalStateException("Can't find a candidate for field: " + point.member + ".");
             }
         }
     }
 
     /**
-     * 设置{@link Field}的值，提供统一的异常捕获处理.
+     * 通过{@link Setter}设置字段的值或调用setter方法，提供统一的异常捕获处理.
+     *
+     * @param member 被注入的成员，仅用于异常信息
+     * @throws IllegalStateException 如果注入失败
      */
-    private void setFieldValue(Field field, Object instance, Object value) {
+    private void setValue(Setter setter, Object member, Object instance, Object value) {
         try {
-            field.setAccessible(true);
-            field.set(instance, value);
-        } catch (IllegalAccessException e) {
-            throw new IllegalStateException("Inject to field '" + field.toString() + "' failed, maybe it's not accessible.", e);
+            setter.set(instance, value);
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Inject to '" + member + "' failed.", e);
         }
     }
 
@@ -702,20 +1099,13 @@ public final class BeanContainer {
      *
      * @throws IllegalStateException 如果没有找到或找到多个候选者或参数不唯一
      */
-    private void injectDependenciesByMethod(Object instance, Class beanClass) {
-        Set<Method> methods = ReflectionUtils.getAllMethods(beanClass, ReflectionUtils.withAnnotation(Resource.class));
-        for (Method method : methods) {
-            Resource resource = method.getAnnotation(Resource.class);
-            Parameter[] parameters = method.getParameters();
-            if (parameters.length != 1) {
-                throw new IllegalStateException("We support one parameter only, method: " + method.toString() + ".");
-            }
-            Parameter parameter = parameters[0];
-            Object dependency = doInjectDependency(parameter.getType(), parameter.getName(), resource);
+    private void injectDependenciesByMethod(Object instance, InjectionPlan plan) {
+        for (InjectionPlan.ResourcePoint point : plan.resourceMethods) {
+            Object dependency = doInjectDependency(point.targetClass, point.targetName, point.resource);
             if (dependency != null) {
-                invokeMethod(method, instance, dependency);
+                setValue(point.setter, point.member, instance, dependency);
             } else {
-                throw new IllegalStateException("Can't find a candidate for method: " + method.toString() + ".");
+                throw new IllegalStateException("Can't find a candidate for method: " + point.member + ".");
             }
         }
     }
@@ -753,16 +1143,17 @@ public final class BeanContainer {
     }
 
     /**
-     * 反射执行{@link Method}，提供统一的异常捕获处理.
+     * 通过{@link InjectionPlan.LifecycleMethod#invoker}调用方法，提供统一的异常捕获处理.
      *
      * @throws IllegalStateException 如果调用失败
      */
-    private void invokeMethod(Method method, Object instance, Object... params) {
+    private void invokeMethod(InjectionPlan.LifecycleMethod method, Object instance, Object[] params) {
         try {
-            method.setAccessible(true);
-            method.invoke(instance, params);
-        } catch (Exception e) {
-            throw new IllegalStateException("Invoke method '" + method + "' failed.", e);
+            method.invoker.invoke(instance, params);
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Invoke method '" + method.method + "' failed.", e);
         }
     }
 
@@ -772,11 +1163,12 @@ public final class BeanContainer {
     public void close() {
         assertNotClosed();
         closed = true;
-        synchronized (monitor) {
-            classMap.forEach((key, value) -> {
-                invokeDestroyMethodsIfNecessary(value);
-            });
+        if (source != null) {
+            source.removeReloadListener(reloadListener);
         }
+        classMap.forEach((key, value) -> {
+            invokeDestroyMethodsIfNecessary(value);
+        });
     }
 
     /**
@@ -787,23 +1179,37 @@ public final class BeanContainer {
      * </ul>
      */
     private void invokeDestroyMethodsIfNecessary(BeanWrapper beanWrapper) {
-        if (beanWrapper.getScope() == Scope.SINGLETON && beanWrapper.getTarget() != null) {
-            Set<Method> methods = ReflectionUtils.getAllMethods(beanWrapper.getTargetClass(),
-                    ReflectionUtils.withAnnotation(Destroy.class));
-            if (methods.size() > 0) {
-                final Object[] emptyParams = new Object[0];
-                List<Method> sorted = new ArrayList<>(methods);
-                sorted.sort((o1, o2) -> o2.getAnnotation(Destroy.class).order() -
-                        o1.getAnnotation(Destroy.class).order());
-                sorted.forEach(method -> {
-                    if (method.getParameterCount() > 0) {
-                        throw new IllegalStateException("Destruction method '" + method.getName() + "' in class '" +
-                                beanWrapper.getTargetClass().getName() + "' can't have parameters.");
-                    }
-                    invokeMethod(method, beanWrapper.getTarget(), emptyParams);
-                });
+        Object target = beanWrapper.getTarget();
+        if (beanWrapper.getScope() == Scope.SINGLETON && target != null) {
+            final Object[] emptyParams = new Object[0];
+            for (InjectionPlan.LifecycleMethod method : getPlan(beanWrapper).destroyMethods) {
+                if (method.method.getParameterCount() > 0) {
+                    throw new IllegalStateException("Destruction method '" + method.method.getName() + "' in class '" +
+                            beanWrapper.getTargetClass().getName() + "' can't have parameters.");
+                }
+                invokeMethod(method, target, emptyParams);
             }
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * 单例bean的一个{@link Value}注入点及注入时的原始配置.
+     */
+    private static final class ValueBinding {
+
+        final BeanWrapper<?> beanWrapper;
+        final InjectionPlan.ValuePoint point;
+        /**
+         * @see #snapshotOf(InjectionPlan.ValuePoint)
+         */
+        Object snapshot;
+
+        ValueBinding(BeanWrapper<?> beanWrapper, InjectionPlan.ValuePoint point, Object snapshot) {
+            this.beanWrapper = beanWrapper;
+            this.point = point;
+            this.snapshot = snapshot;
+        }
+
+    }
+
+}
@@ -12,11 +12,26 @@ public class BeanWrapper<T> {
     private Scope scope;
     private String beanName;
     private Class<T> targetClass;
-    private T target;
     /**
-     * 是否正在创建对应的bean实例.
+     * 已完成初始化的单例，volatile保证无锁读取时的安全发布.
      */
-    private boolean currentlyInCreation = false;
+    private volatile T target;
+    /**
+     * 提前暴露的引用(构造完成但尚未注入)，仅用于循环引用，只能在持有此对象的锁时访问.
+     */
+    private T earlyTarget;
+    /**
+     * 正在创建此单例的线程，只能在持有此对象的锁时修改，跨线程的循环等待检测无锁读取.
+     */
+    private volatile Thread creator;
+    /**
+     * 第一次创建实例时解析的注入计划.
+     */
+    private volatile InjectionPlan plan;
+    /**
+     * 单例的创建耗时(纳秒)，尚未创建时为-1.
+     */
+    private volatile long creationNanos = -1;
 
     Scope getScope() {
         return scope;
@@ -50,12 +65,36 @@ public class BeanWrapper<T> {
         this.target = target;
     }
 
-    boolean isCurrentlyInCreation() {
-        return currentlyInCreation;
+    T getEarlyTarget() {
+        return earlyTarget;
+    }
+
+    void setEarlyTarget(T earlyTarget) {
+        this.earlyTarget = earlyTarget;
+    }
+
+    Thread getCreator() {
+        return creator;
+    }
+
+    void setCreator(Thread creator) {
+        this.creator = creator;
+    }
+
+    InjectionPlan getPlan() {
+        return plan;
+    }
+
+    void setPlan(InjectionPlan plan) {
+        this.plan = plan;
+    }
+
+    long getCreationNanos() {
+        return creationNanos;
     }
 
-    void setCurrentlyInCreation(boolean currentlyInCreation) {
-        this.currentlyInCreation = currentlyInCreation;
+    void setCreationNanos(long creationNanos) {
+        this.creationNanos = creationNanos;
     }
 
     @Override
@@ -65,7 +104,7 @@ public class BeanWrapper<T> {
                 ", beanName='" + beanName + '\'' +
                 ", targetClass=" + targetClass +
                 ", target=" + target +
-                ", currentlyInCreation=" + currentlyInCreation +
+                ", creator=" + creator +
                 '}';
     }
 
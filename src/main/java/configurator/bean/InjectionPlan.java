@@ -0,0 +1,365 @@
+package configurator.bean;
+
+import configurator.bean.accessor.AccessorFactory;
+import configurator.bean.accessor.Instantiator;
+import configurator.bean.accessor.Invoker;
+import configurator.bean.accessor.Setter;
+import configurator.bean.annotation.Destroy;
+import configurator.bean.annotation.Init;
+import configurator.bean.annotation.Value;
+import configurator.conf.Source;
+import configurator.util.Util;
+import org.reflections.ReflectionUtils;
+
+import javax.annotation.Resource;
+import java.lang.reflect.*;
+import java.util.*;
+
+/**
+ * bean类型的注入计划: 构造器、需要注入的字段和方法、解析好的key以及排好序的初始化/销毁方法，每个成员的访问器
+ * 由{@link AccessorFactory}生成.
+ * <p>每个bean类型只解析一次，此后每次创建实例(特别是{@link Scope#PROTOTYPE})时复用，不可变.</p>
+ *
+ * @author skywalker
+ */
+final class InjectionPlan {
+
+    final Constructor<?> constructor;
+    final Instantiator instantiator;
+    final Argument[] constructorArgs;
+    /**
+     * 被{@link Value}标注的字段，如果容器没有{@link Source}，那么为空.
+     */
+    final List<ValuePoint> valueFields;
+    /**
+     * 被{@link Value}标注的方法，如果容器没有{@link Source}，那么为空.
+     */
+    final List<ValuePoint> valueMethods;
+    final List<ResourcePoint> resourceFields;
+    final List<ResourcePoint> resourceMethods;
+    /**
+     * 按照{@link Init#order()}倒序排列.
+     */
+    final List<LifecycleMethod> initMethods;
+    /**
+     * 按照{@link Destroy#order()}倒序排列.
+     */
+    final List<LifecycleMethod> destroyMethods;
+
+    private final AccessorFactory accessors;
+
+    private InjectionPlan(Class<?> beanClass, boolean withConfs, AccessorFactory accessors) {
+        this.accessors = accessors;
+        this.constructor = resolveConstructor(beanClass);
+        this.instantiator = accessors.instantiator(constructor);
+        this.constructorArgs = resolveArguments(constructor.getParameters());
+        this.valueFields = withConfs ? resolveValueFields(beanClass) : Collections.emptyList();
+        this.valueMethods = withConfs ? resolveValueMethods(beanClass) : Collections.emptyList();
+        this.resourceFields = resolveResourceFields(beanClass);
+        this.resourceMethods = resolveResourceMethods(beanClass);
+        this.initMethods = resolveInitMethods(beanClass);
+        this.destroyMethods = resolveDestroyMethods(beanClass);
+    }
+
+    /**
+     * 解析beanClass的注入计划.
+     *
+     * @param withConfs 是否需要解析{@link Value}字段及方法，即容器是否有{@link Source}
+     * @param accessors {@link AccessorFactory} 用以生成成员的访问器
+     * @throws IllegalStateException 如果bean的定义不合法
+     */
+    static InjectionPlan build(Class<?> beanClass, boolean withConfs, AccessorFactory accessors) {
+        return new InjectionPlan(beanClass, withConfs, accessors);
+    }
+
+    /**
+     * bean必须有且只有一个public构造器.
+     */
+    private static Constructor<?> resolveConstructor(Class<?> beanClass) {
+        Constructor<?>[] constructors = beanClass.getConstructors();
+        int length = constructors.length;
+        if (length == 0) {
+            throw new IllegalStateException("There are no public constructors in " + beanClass.getName() + ".");
+        }
+        if (length > 1) {
+            throw new IllegalStateException("There are more than one public constructors in " + beanClass.getName() + ".");
+        }
+        return constructors[0];
+    }
+
+    private static Argument[] resolveArguments(Parameter[] parameters) {
+        Argument[] arguments = new Argument[parameters.length];
+        for (int i = 0, l = parameters.length; i < l; i++) {
+            arguments[i] = new Argument(parameters[i]);
+        }
+        return arguments;
+    }
+
+    private List<ValuePoint> resolveValueFields(Class<?> beanClass) {
+        Set<Field> fields = ReflectionUtils.getAllFields(beanClass, ReflectionUtils.withAnnotation(Value.class));
+        List<ValuePoint> points = new ArrayList<>(fields.size());
+        for (Field field : fields) {
+            points.add(new ValuePoint(field, accessors.setter(field), field.getName(), field.getType(),
+                    field.getGenericType()));
+        }
+        return Collections.unmodifiableList(points);
+    }
+
+    private List<ValuePoint> resolveValueMethods(Class<?> beanClass) {
+        Set<Method> methods = ReflectionUtils.getAllMethods(beanClass, ReflectionUtils.withAnnotation(Value.class));
+        List<ValuePoint> points = new ArrayList<>(methods.size());
+        for (Method method : methods) {
+            int count = method.getParameterCount();
+            if (count != 1) {
+                throw new IllegalStateException("Unsupported method parameter count: " + count + ", method: "
+                        + method.toString() + ".");
+            }
+            points.add(new ValuePoint(method, accessors.setter(method), resolveSetterMethodName(method),
+                    method.getParameterTypes()[0], method.getGenericParameterTypes()[0]));
+        }
+        return Collections.unmodifiableList(points);
+    }
+
+    private List<ResourcePoint> resolveResourceFields(Class<?> beanClass) {
+        Set<Field> fields = ReflectionUtils.getAllFields(beanClass, ReflectionUtils.withAnnotation(Resource.class));
+        List<ResourcePoint> points = new ArrayList<>(fields.size());
+        for (Field field : fields) {
+            points.add(new ResourcePoint(field, accessors.setter(field), field.getType(), field.getName(),
+                    field.getAnnotation(Resource.class)));
+        }
+        return Collections.unmodifiableList(points);
+    }
+
+    private List<ResourcePoint> resolveResourceMethods(Class<?> beanClass) {
+        Set<Method> methods = ReflectionUtils.getAllMethods(beanClass, ReflectionUtils.withAnnotation(Resource.class));
+        List<ResourcePoint> points = new ArrayList<>(methods.size());
+        for (Method method : methods) {
+            Parameter[] parameters = method.getParameters();
+            if (parameters.length != 1) {
+                throw new IllegalStateException("We support one parameter only, method: " + method.toString() + ".");
+            }
+            Parameter parameter = parameters[0];
+            points.add(new ResourcePoint(method, accessors.setter(method), parameter.getType(), parameter.getName(),
+                    method.getAnnotation(Resource.class)));
+        }
+        return Collections.unmodifiableList(points);
+    }
+
+    private List<LifecycleMethod> resolveInitMethods(Class<?> beanClass) {
+        Set<Method> methods = ReflectionUtils.getAllMethods(beanClass, ReflectionUtils.withAnnotation(Init.class));
+        List<Method> sorted = new ArrayList<>(methods);
+        //倒序排列
+        sorted.sort((o1, o2) -> o2.getAnnotation(Init.class).order() - o1.getAnnotation(Init.class).order());
+        List<LifecycleMethod> initMethods = new ArrayList<>(sorted.size());
+        for (Method method : sorted) {
+            initMethods.add(new LifecycleMethod(method, accessors.invoker(method),
+                    resolveArguments(method.getParameters())));
+        }
+        return Collections.unmodifiableList(initMethods);
+    }
+
+    private List<LifecycleMethod> resolveDestroyMethods(Class<?> beanClass) {
+        Set<Method> methods = ReflectionUtils.getAllMethods(beanClass, ReflectionUtils.withAnnotation(Destroy.class));
+        List<Method> sorted = new ArrayList<>(methods);
+        sorted.sort((o1, o2) -> o2.getAnnotation(Destroy.class).order() - o1.getAnnotation(Destroy.class).order());
+        List<LifecycleMethod> destroyMethods = new ArrayList<>(sorted.size());
+        for (Method method : sorted) {
+            destroyMethods.add(new LifecycleMethod(method, accessors.invoker(method), null));
+        }
+        return Collections.unmodifiableList(destroyMethods);
+    }
+
+    /**
+     * 根据setter方法名得到key.
+     *
+     * @param method {@link Method}
+     */
+    private static String resolveSetterMethodName(Method method) {
+        String name = null;
+        String methodName = method.getName();
+        if (methodName.startsWith("set") && methodName.length() > 3) {
+            name = methodName.substring(3, methodName.length()).toLowerCase();
+        }
+        return name;
+    }
+
+    /**
+     * 是否需要进行前缀搜索.
+     *
+     * @return true, 如果需要
+     */
+    private static boolean needFind(String key) {
+        String[] parts = key.split("\\.");
+        return (parts[parts.length - 1].equals("*"));
+    }
+
+    /**
+     * 将(a.b.*)处理为(a.b).
+     */
+    private static String handlePrefix(String key) {
+        String[] parts = key.split("\\.");
+        if (parts.length == 1) {
+            return "";
+        } else {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < parts.length - 1; i++) {
+                sb.append(parts[i]).append(".");
+            }
+            return sb.deleteCharAt(sb.length() - 1).toString();
+        }
+    }
+
+    /**
+     * 给定的字段是否是{@link Map}，且泛型满足{@link Source}.find()方法的返回值.
+     *
+     * @return true，如果满足
+     */
+    private static boolean isEligibleMap(Class<?> clazz, Type type) {
+        if (Map.class.isAssignableFrom(clazz)) {
+            if (type instanceof ParameterizedType) {
+                ParameterizedType pt = (ParameterizedType) type;
+                Type[] types = pt.getActualTypeArguments();
+                if (types.length != 2) {
+                    return false;
+                }
+                if (!(types[0] instanceof Class) || !(types[1] instanceof Class)) {
+                    return false;
+                }
+                return (Class.class.cast(types[0]).isAssignableFrom(String.class) &&
+                        Class.class.cast(types[1]).isAssignableFrom(String.class));
+            } else {
+                //raw type
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 被{@link Value}标注的注入点(字段、setter方法或者参数)，key已经解析完毕.
+     */
+    static final class ValuePoint {
+
+        /**
+         * 字段或setter方法的访问器，参数时为null.
+         */
+        final Setter setter;
+        final Value value;
+        final String key;
+        /**
+         * 是否是前缀搜索(a.b.*)，如果是，{@link #prefix}为搜索的前缀.
+         */
+        final boolean find;
+        final String prefix;
+        final Class<?> type;
+        private final AnnotatedElement element;
+
+        /**
+         * @param element 被{@link Value}标注的元素
+         * @param name    如果{@link Value#key()}没有设置，默认用以进行查找的名字，比如{@link Field}的名称
+         * @param type    element的真实类型
+         * @param generic element的泛型类型
+         * @throws IllegalStateException 如果无法确定key或者前缀搜索的类型不是Map
+         */
+        ValuePoint(AnnotatedElement element, Setter setter, String name, Class<?> type, Type generic) {
+            this.element = element;
+            this.setter = setter;
+            this.value = element.getAnnotation(Value.class);
+            this.type = type;
+            String key = value.key();
+            if (Util.isEmpty(key)) {
+                key = name;
+                if (Util.isEmpty(key)) {
+                    throw new IllegalStateException("Key must be confirmed: " + element + ".");
+                }
+            }
+            this.key = key;
+            this.find = needFind(key);
+            if (find && !isEligibleMap(type, generic)) {
+                throw new IllegalStateException("Inject all configurations for " + element +
+                        " failed, type Map<String,String> required.");
+            }
+            this.prefix = (find ? handlePrefix(key) : null);
+        }
+
+        @Override
+        public String toString() {
+            return element.toString();
+        }
+
+    }
+
+    /**
+     * 被{@link Resource}标注的字段或setter方法.
+     */
+    static final class ResourcePoint {
+
+        final Member member;
+        final Setter setter;
+        /**
+         * 字段或参数的类型.
+         */
+        final Class<?> targetClass;
+        /**
+         * 字段或参数的名称.
+         */
+        final String targetName;
+        final Resource resource;
+
+        ResourcePoint(Member member, Setter setter, Class<?> targetClass, String targetName, Resource resource) {
+            this.member = member;
+            this.setter = setter;
+            this.targetClass = targetClass;
+            this.targetName = targetName;
+            this.resource = resource;
+        }
+
+    }
+
+    /**
+     * 构造器或初始化方法的参数.
+     */
+    static final class Argument {
+
+        final Parameter parameter;
+        /**
+         * jdk1.8 javac -parameters参数，否则为null.
+         */
+        final String name;
+        final Class<?> type;
+        /**
+         * 参数被{@link Value}标注时不为null.
+         */
+        final ValuePoint value;
+
+        Argument(Parameter parameter) {
+            this.parameter = parameter;
+            this.name = (parameter.isNamePresent() ? parameter.getName() : null);
+            this.type = parameter.getType();
+            this.value = (parameter.isAnnotationPresent(Value.class) ?
+                    new ValuePoint(parameter, null, name, type, parameter.getParameterizedType()) : null);
+        }
+
+    }
+
+    /**
+     * 初始化或销毁方法.
+     */
+    static final class LifecycleMethod {
+
+        final Method method;
+        final Invoker invoker;
+        /**
+         * 初始化方法的参数，销毁方法不解析参数，为null.
+         */
+        final Argument[] args;
+
+        LifecycleMethod(Method method, Invoker invoker, Argument[] args) {
+            this.method = method;
+            this.invoker = invoker;
+            this.args = args;
+        }
+
+    }
+
+}
@@ -0,0 +1,26 @@
+package configurator.bean.accessor;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+/**
+ * 访问器工厂，为构造器、字段和方法生成{@link Instantiator}、{@link Setter}、{@link Invoker}.
+ * <p>每个成员只会生成一次，生成的访问器被{@link configurator.bean.BeanContainer}缓存并在每次创建bean时复用.</p>
+ *
+ * @author skywalker
+ */
+public interface AccessorFactory {
+
+    Instantiator instantiator(Constructor<?> constructor);
+
+    Setter setter(Field field);
+
+    /**
+     * 为只有一个参数的(setter)方法生成{@link Setter}.
+     */
+    Setter setter(Method method);
+
+    Invoker invoker(Method method);
+
+}
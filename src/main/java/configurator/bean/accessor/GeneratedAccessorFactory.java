@@ -0,0 +1,100 @@
+package configurator.bean.accessor;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 优先使用编译期生成的{@link GeneratedAccessors}的{@link AccessorFactory}，没有生成的成员交给delegate.
+ *
+ * @author skywalker
+ */
+public class GeneratedAccessorFactory implements AccessorFactory {
+
+    /**
+     * 生成类的后缀.
+     */
+    public static final String SUFFIX = "$$ConfiguratorAccessors";
+
+    /**
+     * 没有生成类时的占位符.
+     */
+    private static final GeneratedAccessors none = new GeneratedAccessors() {
+
+        @Override
+        public Instantiator instantiator() {
+            return null;
+        }
+
+        @Override
+        public Setter setter(String member) {
+            return null;
+        }
+
+        @Override
+        public Invoker invoker(String member) {
+            return null;
+        }
+
+    };
+
+    private final AccessorFactory delegate;
+    private final Map<Class<?>, GeneratedAccessors> cache = new ConcurrentHashMap<>();
+
+    public GeneratedAccessorFactory(AccessorFactory delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Instantiator instantiator(Constructor<?> constructor) {
+        Instantiator instantiator = lookup(constructor.getDeclaringClass()).instantiator();
+        return (instantiator != null ? instantiator : delegate.instantiator(constructor));
+    }
+
+    @Override
+    public Setter setter(Field field) {
+        Setter setter = lookup(field.getDeclaringClass()).setter(field.getName());
+        return (setter != null ? setter : delegate.setter(field));
+    }
+
+    @Override
+    public Setter setter(Method method) {
+        Setter setter = lookup(method.getDeclaringClass()).setter(memberName(method));
+        return (setter != null ? setter : delegate.setter(method));
+    }
+
+    @Override
+    public Invoker invoker(Method method) {
+        Invoker invoker = lookup(method.getDeclaringClass()).invoker(memberName(method));
+        return (invoker != null ? invoker : delegate.invoker(method));
+    }
+
+    /**
+     * 生成方法的成员名: 方法名及参数的擦除类型，重载的方法互不相同，比如setName(java.lang.String).
+     */
+    private String memberName(Method method) {
+        StringBuilder sb = new StringBuilder(method.getName()).append('(');
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        for (int i = 0; i < parameterTypes.length; i++) {
+            sb.append(i > 0 ? "," : "").append(parameterTypes[i].getTypeName());
+        }
+        return sb.append(')').toString();
+    }
+
+    /**
+     * 加载clazz对应的生成类，结果被缓存.
+     */
+    private GeneratedAccessors lookup(Class<?> clazz) {
+        return cache.computeIfAbsent(clazz, key -> {
+            try {
+                Class<?> generated = Class.forName(key.getName() + SUFFIX, true, key.getClassLoader());
+                return (GeneratedAccessors) generated.newInstance();
+            } catch (ClassNotFoundException | InstantiationException | IllegalAccessException | ClassCastException e) {
+                return none;
+            }
+        });
+    }
+
+}
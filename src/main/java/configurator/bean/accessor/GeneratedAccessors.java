@@ -0,0 +1,35 @@
+package configurator.bean.accessor;
+
+/**
+ * 由{@link configurator.processor.ComponentIndexProcessor}在编译期为bean类型生成的访问器，生成的类与bean位于同一个包，
+ * 名为bean类型的binary simple name加上{@link GeneratedAccessorFactory#SUFFIX}.
+ * <p>生成的代码直接调用构造器、字段及方法，不需要反射；private成员无法生成，此时返回null.</p>
+ *
+ * @author skywalker
+ */
+public interface GeneratedAccessors {
+
+    /**
+     * 唯一的public构造器.
+     *
+     * @return null, 如果没有生成
+     */
+    Instantiator instantiator();
+
+    /**
+     * 字段或单参数方法的{@link Setter}.
+     *
+     * @param member 字段名，或者方法名及参数的擦除类型，比如setName(java.lang.String)
+     * @return null, 如果没有生成
+     */
+    Setter setter(String member);
+
+    /**
+     * 方法的{@link Invoker}.
+     *
+     * @param member 方法名及参数的擦除类型，比如init()
+     * @return null, 如果没有生成
+     */
+    Invoker invoker(String member);
+
+}
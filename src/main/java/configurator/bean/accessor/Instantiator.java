@@ -0,0 +1,17 @@
+package configurator.bean.accessor;
+
+/**
+ * 构造器访问器.
+ *
+ * @author skywalker
+ */
+public interface Instantiator {
+
+    /**
+     * 构造对象.
+     *
+     * @throws Throwable 构造器本身抛出的异常或者访问失败
+     */
+    Object newInstance(Object[] args) throws Throwable;
+
+}
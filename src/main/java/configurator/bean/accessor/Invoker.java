@@ -0,0 +1,17 @@
+package configurator.bean.accessor;
+
+/**
+ * 方法访问器.
+ *
+ * @author skywalker
+ */
+public interface Invoker {
+
+    /**
+     * 调用方法.
+     *
+     * @throws Throwable 方法本身抛出的异常或者访问失败
+     */
+    void invoke(Object target, Object[] args) throws Throwable;
+
+}
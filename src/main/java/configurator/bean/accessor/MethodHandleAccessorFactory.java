@@ -0,0 +1,95 @@
+package configurator.bean.accessor;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * 基于{@link MethodHandle}的{@link AccessorFactory}.
+ * <p>每个成员的{@link MethodHandle}只生成一次，并被适配为(Object, Object...)的通用签名，从而可以使用invokeExact调用，
+ * 省去了反射每次调用时的访问检查和参数数组拷贝.</p>
+ * <p>如果某个成员无法生成{@link MethodHandle}(比如final字段)或者是静态成员，那么退化为{@link ReflectionAccessorFactory}.</p>
+ *
+ * @author skywalker
+ */
+public class MethodHandleAccessorFactory implements AccessorFactory {
+
+    private static final MethodType instantiatorType = MethodType.methodType(Object.class, Object[].class);
+    private static final MethodType setterType = MethodType.methodType(void.class, Object.class, Object.class);
+    private static final MethodType invokerType = MethodType.methodType(void.class, Object.class, Object[].class);
+
+    private final MethodHandles.Lookup lookup = MethodHandles.lookup();
+    private final ReflectionAccessorFactory fallback = new ReflectionAccessorFactory();
+
+    @Override
+    public Instantiator instantiator(Constructor<?> constructor) {
+        MethodHandle handle;
+        try {
+            constructor.setAccessible(true);
+            handle = lookup.unreflectConstructor(constructor)
+                    .asSpreader(Object[].class, constructor.getParameterCount())
+                    .asType(instantiatorType);
+        } catch (IllegalAccessException e) {
+            return fallback.instantiator(constructor);
+        }
+        return args -> (Object) handle.invokeExact(args);
+    }
+
+    @Override
+    public Setter setter(Field field) {
+        if (Modifier.isStatic(field.getModifiers())) {
+            return fallback.setter(field);
+        }
+        MethodHandle handle;
+        try {
+            field.setAccessible(true);
+            handle = lookup.unreflectSetter(field).asType(setterType);
+        } catch (IllegalAccessException e) {
+            return fallback.setter(field);
+        }
+        return (target, value) -> {
+            handle.invokeExact(target, value);
+        };
+    }
+
+    @Override
+    public Setter setter(Method method) {
+        if (Modifier.isStatic(method.getModifiers())) {
+            return fallback.setter(method);
+        }
+        MethodHandle handle;
+        try {
+            method.setAccessible(true);
+            handle = lookup.unreflect(method).asType(setterType);
+        } catch (IllegalAccessException e) {
+            return fallback.setter(method);
+        }
+        return (target, value) -> {
+            handle.invokeExact(target, value);
+        };
+    }
+
+    @Override
+    public Invoker invoker(Method method) {
+        if (Modifier.isStatic(method.getModifiers())) {
+            return fallback.invoker(method);
+        }
+        MethodHandle handle;
+        try {
+            method.setAccessible(true);
+            handle = lookup.unreflect(method)
+                    .asSpreader(Object[].class, method.getParameterCount())
+                    .asType(invokerType);
+        } catch (IllegalAccessException e) {
+            return fallback.invoker(method);
+        }
+        return (target, args) -> {
+            handle.invokeExact(target, args);
+        };
+    }
+
+}
@@ -0,0 +1,52 @@
+package configurator.bean.accessor;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * 基于反射的{@link AccessorFactory}，setAccessible只在生成访问器时执行一次.
+ * <p>{@link InvocationTargetException}会被解开，抛出成员本身的异常.</p>
+ *
+ * @author skywalker
+ */
+public class ReflectionAccessorFactory implements AccessorFactory {
+
+    @Override
+    public Instantiator instantiator(Constructor<?> constructor) {
+        constructor.setAccessible(true);
+        return args -> {
+            try {
+                return constructor.newInstance(args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        };
+    }
+
+    @Override
+    public Setter setter(Field field) {
+        field.setAccessible(true);
+        return field::set;
+    }
+
+    @Override
+    public Setter setter(Method method) {
+        Invoker invoker = invoker(method);
+        return (target, value) -> invoker.invoke(target, new Object[]{value});
+    }
+
+    @Override
+    public Invoker invoker(Method method) {
+        method.setAccessible(true);
+        return (target, args) -> {
+            try {
+                method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        };
+    }
+
+}
@@ -0,0 +1,17 @@
+package configurator.bean.accessor;
+
+/**
+ * 字段或者单参数方法的访问器.
+ *
+ * @author skywalker
+ */
+public interface Setter {
+
+    /**
+     * 设置字段的值或者以value为参数调用方法.
+     *
+     * @throws Throwable 方法本身抛出的异常或者访问失败
+     */
+    void set(Object target, Object value) throws Throwable;
+
+}
@@ -28,4 +28,11 @@ abstract class AbstractPathBasedSource extends AbstractSource {
         }
     }
 
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{" +
+                "path='" + path + '\'' +
+                '}';
+    }
+
 }
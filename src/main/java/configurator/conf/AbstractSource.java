@@ -2,7 +2,9 @@ package configurator.conf;
 
 import configurator.util.Util;
 
+import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 /**
  * {@link Source}骨架实现，提供统一的{@link Source#contains(String)}方法实现.
@@ -69,6 +71,45 @@ public abstract class AbstractSource implements Source {
         return doFind(prefix);
     }
 
+    @Override
+    public final void forEach(String prefix, BiConsumer<String, String> consumer) {
+        if (Util.isEmpty(prefix) || prefix.equals("*")) {
+            prefix = "";
+        }
+        doForEach(prefix, consumer);
+    }
+
     protected abstract Map<String, String> doFind(String prefix);
 
+    /**
+     * 依次访问前缀搜索的结果，顺序与{@link #find(String)}相同.默认基于{@link #doFind(String)}，子类可以覆盖以避免创建
+     * 中间的{@link Map}.
+     *
+     * @param prefix 已经规范化的前缀，""表示全部
+     */
+    protected void doForEach(String prefix, BiConsumer<String, String> consumer) {
+        doFind(prefix).forEach(consumer);
+    }
+
+    /**
+     * 通知所有的监听器，某个监听器的异常不影响其它监听器，全部通知之后抛出第一个异常.
+     */
+    static void fireReload(List<ReloadListener> listeners, Source source) {
+        RuntimeException failure = null;
+        for (ReloadListener listener : listeners) {
+            try {
+                listener.onReload(source);
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
 }
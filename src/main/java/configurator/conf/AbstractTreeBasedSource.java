@@ -1,23 +1,221 @@
 package configurator.conf;
 
+import configurator.conf.exception.LoadException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
 
 /**
- * {@link Source}骨架实现，给予{@link TrieTree}.
+ * {@link Source}骨架实现，基于{@link TrieTree}.
+ * <p>{@link #load()}将配置加载到一棵新的{@link TrieTree}中，完成之后冻结({@link TrieTree#freeze()})并替换{@link #holder}，
+ * 每次替换版本号加1.</p>
+ * <p>getInt/getLong/getDouble/getBoolean的解析结果缓存在冻结的树中，重新加载之后随旧树一起丢弃.</p>
+ * <p>设置{@link #setSnapshotPath(String)}之后，冻结的树被保存为二进制快照，配置文件未变化时下次加载直接读取快照.</p>
  *
  * @author skywalker
  */
 public abstract class AbstractTreeBasedSource extends AbstractPathBasedSource {
 
-    protected final TrieTree holder = new TrieTree();
+    protected volatile TrieTree holder = new TrieTree();
+    private StringPool stringPool;
+    private volatile String snapshotPath;
+    /**
+     * 串行化重新加载，读取不加锁.
+     */
+    private final Object loadLock = new Object();
+    private final List<ReloadListener> listeners = new CopyOnWriteArrayList<>();
+    private final boolean treeLoaded = !overridesLoad(getClass());
 
     protected AbstractTreeBasedSource(String path) {
         super(path);
     }
 
+    /**
+     * 可以重复调用以重新加载: 新的配置解析到一棵新的树中，完成之后一次volatile写替换，读取方不会看到加载了一半的树，
+     * 也不会被阻塞.加载失败时保留原来的配置.
+     * <p>子类通常实现{@link #doLoad(TrieTree)}或者{@link #loadTree()}.仍然可以像以前一样覆盖此方法并直接写入{@link #holder}，
+     * 此时树不会被冻结，{@link CompositeSource}也不再为其建立合并索引，而是直接调用此方法.</p>
+     */
+    @Override
+    public void load() throws LoadException {
+        synchronized (loadLock) {
+            swap(prepareTree());
+        }
+        fireReload();
+    }
+
+    /**
+     * 发布已经加载完成的tree，然后通知监听器.
+     */
+    void publish(TrieTree tree) {
+        synchronized (loadLock) {
+            swap(tree);
+        }
+        fireReload();
+    }
+
+    /**
+     * 替换{@link #holder}，版本号为当前版本 + 1.调用方需持有{@link #loadLock}.
+     */
+    private void swap(TrieTree tree) {
+        tree.version = holder.version + 1;
+        holder = tree;
+    }
+
+    /**
+     * 版本号保存在树中，与读取到的树一致.
+     */
+    @Override
+    public long getVersion() {
+        return holder.version;
+    }
+
+    @Override
+    public void addReloadListener(ReloadListener listener) {
+        listeners.add(Objects.requireNonNull(listener));
+    }
+
     @Override
-    protected final Map<String, String> doFind(String prefix) {
+    public void removeReloadListener(ReloadListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void fireReload() {
+        fireReload(listeners, this);
+    }
+
+    /**
+     * 优先读取快照，快照不存在或者已过期时通过{@link #loadTree()}加载并重新生成快照.快照只是缓存，读写失败都不影响加载.
+     */
+    TrieTree prepareTree() throws LoadException {
+        String snapshotPath = this.snapshotPath;
+        if (snapshotPath == null) {
+            return loadTree();
+        }
+        TrieSnapshot.Stamp stamp;
+        try {
+            stamp = TrieSnapshot.Stamp.of(Paths.get(path));
+        } catch (IOException e) {
+            //配置文件本身的错误由loadTree报告
+            return loadTree();
+        }
+        Path snapshot = Paths.get(snapshotPath);
+        String kind = getClass().getName();
+        FrozenTrie frozen = TrieSnapshot.read(snapshot, stamp, kind);
+        if (frozen != null) {
+            return new TrieTree(frozen);
+        }
+        TrieTree tree = loadTree();
+        try {
+            TrieSnapshot.write(snapshot, stamp, kind, tree.frozen());
+        } catch (IOException ignored) {
+        }
+        return tree;
+    }
+
+    /**
+     * 加载出一棵已冻结的{@link TrieTree}，默认通过{@link #doLoad(TrieTree)}写入节点树再冻结.子类可以覆盖以直接构建
+     * 冻结的形式.
+     */
+    protected TrieTree loadTree() throws LoadException {
+        TrieTree tree = new TrieTree();
+        tree.setStringPool(stringPool);
+        doLoad(tree);
+        tree.freeze();
+        return tree;
+    }
+
+    /**
+     * 设置加载时使用的字符串去重池，多个{@link Source}可以共享同一个池.默认不去重.
+     */
+    public void setStringPool(StringPool stringPool) {
+        this.stringPool = stringPool;
+    }
+
+    /**
+     * 设置二进制快照文件的路径，null表示不使用快照(默认).快照以配置文件的大小、修改时间及内容的CRC32判断是否过期，
+     * 同一个快照文件不能被多个{@link Source}共用.
+     */
+    public void setSnapshotPath(String snapshotPath) {
+        this.snapshotPath = snapshotPath;
+    }
+
+    StringPool getStringPool() {
+        return stringPool;
+    }
+
+    /**
+     * 将配置加载到tree中，覆盖了{@link #load()}的子类不需要实现.
+     *
+     * @param tree 新的{@link TrieTree}
+     * @throws LoadException 如果加载失败
+     */
+    protected void doLoad(TrieTree tree) throws LoadException {
+        throw new IllegalStateException(getClass().getName() + " must override load() or doLoad(TrieTree).");
+    }
+
+    /**
+     * @return 是否使用{@link #loadTree()}加载，即子类没有覆盖{@link #load()}
+     */
+    boolean isTreeLoaded() {
+        return treeLoaded;
+    }
+
+    private static boolean overridesLoad(Class<?> clazz) {
+        try {
+            return (clazz.getMethod("load").getDeclaringClass() != AbstractTreeBasedSource.class);
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * key是否直接对应{@link TrieTree}中的节点，即{@link #get(String)}等价于holder.get(key).否则类型化读取退化为解析
+     * {@link #get(String)}的结果，{@link CompositeSource}也不通过合并索引解析此key.
+     */
+    protected boolean isTreeKey(String key) {
+        return true;
+    }
+
+    @Override
+    public int getInt(String key) {
+        return (isTreeKey(key) ? holder.getInt(key) : super.getInt(key));
+    }
+
+    @Override
+    public long getLong(String key) {
+        return (isTreeKey(key) ? holder.getLong(key) : super.getLong(key));
+    }
+
+    @Override
+    public double getDouble(String key) {
+        return (isTreeKey(key) ? holder.getDouble(key) : super.getDouble(key));
+    }
+
+    @Override
+    public boolean getBoolean(String key) {
+        return (isTreeKey(key) ? holder.getBoolean(key) : super.getBoolean(key));
+    }
+
+    @Override
+    public <T> ConfigKey<T> key(String key, Class<T> type) {
+        return (isTreeKey(key) ? new TreeConfigKey<>(this, key, type) : super.key(key, type));
+    }
+
+    @Override
+    protected Map<String, String> doFind(String prefix) {
         return holder.find(prefix);
     }
 
+    @Override
+    protected void doForEach(String prefix, BiConsumer<String, String> consumer) {
+        holder.forEach(prefix, consumer);
+    }
+
 }
@@ -0,0 +1,327 @@
+package configurator.conf;
+
+import configurator.util.Util;
+
+import java.io.Closeable;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 按前缀订阅{@link Source}的配置变化.
+ * <p>每次重新加载之后，在加载线程中比较所有被订阅前缀下的新旧配置，每个订阅者得到一个包含其前缀下全部变化的
+ * {@link ConfigChangeEvent}.变化的key按段在订阅前缀树中匹配订阅者，不需要遍历所有的订阅.</p>
+ * <p>事件在{@link Executor}上分发(默认{@link ForkJoinPool#commonPool()})，同一个订阅者的事件依次处理.订阅者来不及
+ * 处理时，尚未分发的事件被合并为一个: 旧值取最早的，新值取最新的，最终没有变化的key被去掉.</p>
+ *
+ * @author skywalker
+ */
+public final class ChangeNotifier implements Closeable {
+
+    private static final Logger logger = Logger.getLogger(ChangeNotifier.class.getName());
+
+    private final Source source;
+    private final Executor executor;
+    private final ReloadListener reloadListener = source -> onReload();
+    private final Node root = new Node(null, "");
+    /**
+     * 所有被订阅前缀下的配置，用于和重新加载之后的配置比较.
+     */
+    private Map<String, String> snapshot = Collections.emptyMap();
+    private volatile BiConsumer<ConfigChangeListener, RuntimeException> errorHandler = ChangeNotifier::logFailure;
+
+    public ChangeNotifier(Source source) {
+        this(source, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param executor 分发事件所使用的{@link Executor}
+     */
+    public ChangeNotifier(Source source, Executor executor) {
+        this.source = Objects.requireNonNull(source);
+        this.executor = Objects.requireNonNull(executor);
+        source.addReloadListener(reloadListener);
+    }
+
+    /**
+     * 设置订阅者抛出异常时的处理器，默认通过{@link java.util.logging}记录.处理器本身抛出的异常被记录之后忽略，
+     * 不影响之后的分发.
+     */
+    public void setErrorHandler(BiConsumer<ConfigChangeListener, RuntimeException> errorHandler) {
+        this.errorHandler = Objects.requireNonNull(errorHandler);
+    }
+
+    private static void logFailure(ConfigChangeListener listener, RuntimeException e) {
+        logger.log(Level.WARNING, "Config change listener " + listener + " failed.", e);
+    }
+
+    /**
+     * 订阅prefix下的配置变化，同一个订阅者重复订阅同一个前缀无影响.
+     *
+     * @param prefix 前缀，比如"db"或者"db.*"，null、""以及"*"表示全部
+     */
+    public synchronized void subscribe(String prefix, ConfigChangeListener listener) {
+        Objects.requireNonNull(listener);
+        Node node = root;
+        for (String segment : segmentsOf(prefix)) {
+            Node parent = node;
+            node = parent.children.computeIfAbsent(segment, name -> new Node(parent, name));
+        }
+        for (Subscription subscription : node.subscriptions) {
+            if (subscription.listener == listener) {
+                return;
+            }
+        }
+        if (!isCovered(node)) {
+            //已经在快照中的key(被子前缀订阅)保留原来的值，否则尚未通知的变化会被吸收
+            Map<String, String> copy = new HashMap<>(snapshot);
+            source.forEach(node.prefix(), copy::putIfAbsent);
+            snapshot = copy;
+        }
+        node.subscriptions.add(new Subscription(node.prefix(), listener));
+    }
+
+    /**
+     * 取消订阅，已经提交的事件仍然会被分发.只从快照中去掉不再被任何前缀订阅的key，不重新读取{@link Source}，
+     * 否则已经加载但尚未通知的变化会被吸收，其它订阅者收不到.
+     */
+    public synchronized void unsubscribe(String prefix, ConfigChangeListener listener) {
+        Node node = root;
+        for (String segment : segmentsOf(prefix)) {
+            node = node.children.get(segment);
+            if (node == null) {
+                return;
+            }
+        }
+        if (node.subscriptions.removeIf(subscription -> subscription.listener == listener)) {
+            for (; node.parent != null && node.subscriptions.isEmpty() && node.children.isEmpty(); node = node.parent) {
+                node.parent.children.remove(node.name);
+            }
+            Map<String, String> copy = new HashMap<>(snapshot);
+            if (copy.keySet().removeIf(key -> !isCovered(key))) {
+                snapshot = copy;
+            }
+        }
+    }
+
+    /**
+     * 停止监听{@link Source}的重新加载.
+     */
+    @Override
+    public void close() {
+        source.removeReloadListener(reloadListener);
+    }
+
+    private synchronized void onReload() {
+        Map<String, String> current = collect();
+        Map<Subscription, Map<String, String[]>> changes = new LinkedHashMap<>();
+        current.forEach((key, value) -> {
+            String old = snapshot.get(key);
+            if (!value.equals(old)) {
+                match(key, old, value, changes);
+            }
+        });
+        snapshot.forEach((key, old) -> {
+            if (!current.containsKey(key)) {
+                match(key, old, null, changes);
+            }
+        });
+        snapshot = current;
+        long version = source.getVersion();
+        changes.forEach((subscription, change) -> subscription.offer(change, version));
+    }
+
+    /**
+     * 沿着key的每一段在订阅前缀树中向下查找，路径上的所有订阅者都包含此key.
+     */
+    private void match(String key, String old, String value, Map<Subscription, Map<String, String[]>> changes) {
+        Node node = root;
+        int from = 0;
+        while (true) {
+            for (Subscription subscription : node.subscriptions) {
+                changes.computeIfAbsent(subscription, s -> new LinkedHashMap<>()).put(key, new String[]{old, value});
+            }
+            if (from > key.length()) {
+                return;
+            }
+            int to = key.indexOf('.', from);
+            if (to < 0) {
+                to = key.length();
+            }
+            node = node.children.get(key.substring(from, to));
+            if (node == null) {
+                return;
+            }
+            from = to + 1;
+        }
+    }
+
+    /**
+     * 收集所有被订阅前缀下的配置，被其它前缀覆盖的前缀不需要重复收集.
+     */
+    private Map<String, String> collect() {
+        Map<String, String> result = new HashMap<>();
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            if (!node.subscriptions.isEmpty()) {
+                source.forEach(node.prefix(), result::put);
+            } else {
+                node.children.values().forEach(stack::push);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * key是否在某个被订阅的前缀下.
+     */
+    private boolean isCovered(String key) {
+        Node node = root;
+        int from = 0;
+        while (node.subscriptions.isEmpty()) {
+            if (from > key.length()) {
+                return false;
+            }
+            int to = key.indexOf('.', from);
+            if (to < 0) {
+                to = key.length();
+            }
+            node = node.children.get(key.substring(from, to));
+            if (node == null) {
+                return false;
+            }
+            from = to + 1;
+        }
+        return true;
+    }
+
+    private boolean isCovered(Node node) {
+        for (; node != null; node = node.parent) {
+            if (!node.subscriptions.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<String> segmentsOf(String prefix) {
+        if (Util.isEmpty(prefix)) {
+            return Collections.emptyList();
+        }
+        if (prefix.endsWith("*")) {
+            prefix = prefix.substring(0, prefix.length() - 1);
+        }
+        int end = prefix.length();
+        while (end > 0 && prefix.charAt(end - 1) == '.') {
+            end--;
+        }
+        return (end == 0 ? Collections.emptyList() : Arrays.asList(prefix.substring(0, end).split("\\.")));
+    }
+
+    /**
+     * 订阅前缀树的节点，对应前缀的一段.
+     */
+    private static final class Node {
+
+        private final Node parent;
+        private final String name;
+        private final Map<String, Node> children = new HashMap<>();
+        private final List<Subscription> subscriptions = new ArrayList<>(1);
+
+        private Node(Node parent, String name) {
+            this.parent = parent;
+            this.name = name;
+        }
+
+        private String prefix() {
+            if (parent == null) {
+                return "";
+            }
+            String parentPrefix = parent.prefix();
+            return (parentPrefix.isEmpty() ? name : parentPrefix + "." + name);
+        }
+
+    }
+
+    /**
+     * 一个订阅者，保存尚未分发的变化(key -> {旧值, 新值}).
+     */
+    private final class Subscription {
+
+        private final String prefix;
+        private final ConfigChangeListener listener;
+        private Map<String, String[]> pending = new LinkedHashMap<>();
+        private long version;
+        private boolean scheduled;
+
+        private Subscription(String prefix, ConfigChangeListener listener) {
+            this.prefix = prefix;
+            this.listener = listener;
+        }
+
+        /**
+         * 处理器抛出异常时drain不能中断，否则scheduled一直为true，之后的变化不再分发.
+         */
+        private void handleFailure(RuntimeException e) {
+            try {
+                errorHandler.accept(listener, e);
+            } catch (RuntimeException handlerFailure) {
+                if (handlerFailure != e) {
+                    handlerFailure.addSuppressed(e);
+                }
+                logger.log(Level.SEVERE, "Error handler failed for listener " + listener + ".", handlerFailure);
+            }
+        }
+
+        private synchronized void offer(Map<String, String[]> changes, long version) {
+            changes.forEach((key, change) -> {
+                String[] previous = pending.get(key);
+                if (previous == null) {
+                    pending.put(key, change);
+                } else if (Objects.equals(previous[0], change[1])) {
+                    pending.remove(key);
+                } else {
+                    previous[1] = change[1];
+                }
+            });
+            this.version = version;
+            if (!scheduled && !pending.isEmpty()) {
+                scheduled = true;
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                Map<String, String[]> changes;
+                long version;
+                synchronized (this) {
+                    if (pending.isEmpty()) {
+                        scheduled = false;
+                        return;
+                    }
+                    changes = pending;
+                    version = this.version;
+                    pending = new LinkedHashMap<>();
+                }
+                Map<String, String> oldValues = new LinkedHashMap<>(), newValues = new LinkedHashMap<>();
+                changes.forEach((key, change) -> {
+                    oldValues.put(key, change[0]);
+                    newValues.put(key, change[1]);
+                });
+                try {
+                    listener.onChange(new ConfigChangeEvent(source, prefix, version, oldValues, newValues));
+                } catch (RuntimeException e) {
+                    handleFailure(e);
+                }
+            }
+        }
+
+    }
+
+}
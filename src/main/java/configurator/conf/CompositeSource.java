@@ -3,15 +3,53 @@ package configurator.conf;
 import configurator.conf.exception.LoadException;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
 
 /**
  * {@link Source}实现，将一组{@linkplain Source}组合在一起，提供统一的访问接口.非线程安全.
+ * <p>当所有的{@link Source}都是已加载的{@link AbstractTreeBasedSource}时，{@link #get(String)}使用合并索引: key的哈希值 ->
+ * 第一个拥有此key的{@link Source}的序号及其{@link FrozenTrie}中的节点下标，不保存key本身，命中时由对应的{@link FrozenTrie}
+ * 逐段比较确认，不存在的key一次探测即返回null，不需要逐个查找.索引在注册、{@link #load()}以及任何一个{@link Source}
+ * 单独重新加载之后重建并原子替换，读取方从不重建.</p>
+ * <p>{@link #find(String)}与{@link #get(String)}的优先级一致: 同一个key以先注册的{@link Source}为准.</p>
+ * <p>设置{@link #setLoadExecutor(Executor)}之后，{@link #load()}在其上并行加载所有的{@link Source}，查找顺序仍然是注册顺序.</p>
+ * <p>{@link #load()}可以重复调用以重新加载，版本号为所有{@link Source}的版本号之和.</p>
  *
  * @author skywalker
  */
 public class CompositeSource extends AbstractSource {
 
-    private final List<Source> sources = new LinkedList<>();
+    /**
+     * 监听线程中的{@link #childListener}会遍历，与注册并发.
+     */
+    private final List<Source> sources = new CopyOnWriteArrayList<>();
+    private volatile ResolutionIndex index = ResolutionIndex.disabled;
+    /**
+     * 为null时依次加载.
+     */
+    private Executor loadExecutor;
+    private final List<ReloadListener> listeners = new CopyOnWriteArrayList<>();
+    /**
+     * 正在执行{@link #load()}的线程，其间子{@link Source}的重新加载不单独通知，加载完成之后统一通知一次.
+     */
+    private volatile Thread loadingThread;
+    /**
+     * 注册在每个子{@link Source}上，子{@link Source}单独重新加载(比如被{@link SourceWatcher}监听)时通知此组合的监听器.
+     */
+    private final ReloadListener childListener = source -> {
+        if (Thread.currentThread() != loadingThread) {
+            rebuildIndex();
+            fireReload();
+        }
+    };
+    /**
+     * 重建并替换{@link #index}时持有，最后一次替换总是基于所有已发布的{@link TrieTree}.
+     */
+    private final Object indexLock = new Object();
 
     /**
      * {@link Source}注册.
@@ -19,18 +57,151 @@ public class CompositeSource extends AbstractSource {
      * @param ss {@linkplain Source}数组
      */
     public void registerSource(Source... ss) {
-        sources.addAll(Arrays.asList(ss));
+        for (Source source : ss) {
+            sources.add(source);
+            source.addReloadListener(childListener);
+        }
+        rebuildIndex();
+    }
+
+    List<Source> getSources() {
+        return new ArrayList<>(sources);
     }
 
+    /**
+     * 设置并行加载所使用的{@link Executor}，null表示依次加载(默认).
+     */
+    public void setLoadExecutor(Executor loadExecutor) {
+        this.loadExecutor = loadExecutor;
+    }
+
+    /**
+     * {@link AbstractTreeBasedSource}先全部解析完成，再依次替换并重建索引，任何一个失败时所有的{@link AbstractTreeBasedSource}
+     * 都保留原来的配置.
+     */
     @Override
     public void load() throws LoadException {
+        loadingThread = Thread.currentThread();
+        try {
+            doLoad();
+        } finally {
+            loadingThread = null;
+        }
+        fireReload();
+    }
+
+    private void doLoad() throws LoadException {
+        List<Source> sources = new ArrayList<>(this.sources);
+        TrieTree[] trees;
+        if (loadExecutor == null || sources.size() < 2) {
+            trees = new TrieTree[sources.size()];
+            for (int i = 0, l = sources.size(); i < l; i++) {
+                trees[i] = prepare(sources.get(i));
+            }
+        } else {
+            trees = prepareConcurrently(sources, loadExecutor);
+        }
+        for (int i = 0; i < trees.length; i++) {
+            if (trees[i] != null) {
+                ((AbstractTreeBasedSource) sources.get(i)).publish(trees[i]);
+            }
+        }
+        rebuildIndex();
+    }
+
+    /**
+     * @return {@link AbstractTreeBasedSource}加载出的未发布的树，其它{@link Source}(包括覆盖了load()的
+     * {@link AbstractTreeBasedSource})直接加载并返回null
+     */
+    private static TrieTree prepare(Source source) throws LoadException {
+        if (source instanceof AbstractTreeBasedSource && ((AbstractTreeBasedSource) source).isTreeLoaded()) {
+            return ((AbstractTreeBasedSource) source).prepareTree();
+        }
+        source.load();
+        return null;
+    }
+
+    /**
+     * 等待所有的{@link Source}加载完成，有失败时抛出最先注册的失败来源的异常，其余的失败作为suppressed.
+     */
+    private static TrieTree[] prepareConcurrently(List<Source> sources, Executor executor) throws LoadException {
+        List<CompletableFuture<TrieTree>> futures = new ArrayList<>(sources.size());
+        for (Source source : sources) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return prepare(source);
+                } catch (LoadException e) {
+                    throw new SourceLoadFailure(e);
+                }
+            }, executor));
+        }
+        TrieTree[] trees = new TrieTree[sources.size()];
+        LoadException failure = null;
+        for (int i = 0, l = sources.size(); i < l; i++) {
+            Throwable cause;
+            try {
+                trees[i] = futures.get(i).get();
+                continue;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new LoadException("Interrupted while loading sources.", e);
+            } catch (ExecutionException e) {
+                cause = e.getCause();
+            }
+            if (cause instanceof SourceLoadFailure) {
+                cause = cause.getCause();
+            }
+            LoadException exception = new LoadException("Load source " + sources.get(i) + " failed.", cause);
+            if (failure == null) {
+                failure = exception;
+            } else {
+                failure.addSuppressed(exception);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return trees;
+    }
+
+    @Override
+    public void addReloadListener(ReloadListener listener) {
+        listeners.add(Objects.requireNonNull(listener));
+    }
+
+    @Override
+    public void removeReloadListener(ReloadListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void fireReload() {
+        fireReload(listeners, this);
+    }
+
+    /**
+     * 所有{@link Source}的版本号之和，任何一个重新加载都会使其增大.
+     */
+    @Override
+    public long getVersion() {
+        long version = 0;
         for (Source source : sources) {
-            source.load();
+            version += source.getVersion();
         }
+        return version;
     }
 
     @Override
     public String get(String key) {
+        ResolutionIndex index = this.index;
+        if (index.isUsable(key)) {
+            long position = index.resolve(key);
+            if (position == ResolutionIndex.miss) {
+                return null;
+            }
+            if (position != ResolutionIndex.traverse) {
+                return index.tries[child(position)].values[node(position)];
+            }
+        }
         String result = null;
         for (Source source : sources) {
             result = source.get(key);
@@ -41,8 +212,18 @@ public class CompositeSource extends AbstractSource {
         return result;
     }
 
+    /**
+     * 索引命中时直接由拥有此key的{@link Source}解析.
+     */
     @Override
     public String[] getStringArray(String key) {
+        ResolutionIndex index = this.index;
+        if (index.isUsable(key)) {
+            long position = index.resolve(key);
+            if (position >= 0) {
+                return index.children[child(position)].getStringArray(key);
+            }
+        }
         String[] result = null;
         for (Source source : sources) {
             result = source.getStringArray(key);
@@ -53,13 +234,247 @@ public class CompositeSource extends AbstractSource {
         return result;
     }
 
+    private static int child(long position) {
+        return (int) (position >>> 32);
+    }
+
+    private static int node(long position) {
+        return (int) position;
+    }
+
+    private void rebuildIndex() {
+        synchronized (indexLock) {
+            index = buildIndex();
+        }
+    }
+
+    /**
+     * 存在非{@link AbstractTreeBasedSource}或者未加载的{@link Source}时不建立索引.
+     */
+    private ResolutionIndex buildIndex() {
+        Source[] sources = this.sources.toArray(new Source[0]);
+        int size = sources.length;
+        AbstractTreeBasedSource[] children = new AbstractTreeBasedSource[size];
+        TrieTree[] trees = new TrieTree[size];
+        FrozenTrie[] tries = new FrozenTrie[size];
+        boolean frozen = true;
+        for (int i = 0; i < size; i++) {
+            if (!(sources[i] instanceof AbstractTreeBasedSource)) {
+                return ResolutionIndex.disabled;
+            }
+            children[i] = (AbstractTreeBasedSource) sources[i];
+            trees[i] = children[i].holder;
+            tries[i] = trees[i].frozen();
+            frozen &= (tries[i] != null);
+        }
+        //存在未加载的Source时索引不可用，其加载之后由childListener重建
+        return new ResolutionIndex(children, trees, frozen ? tries : null);
+    }
+
+    /**
+     * 所有的{@link Source}只访问一次，直接写入结果，先写入的key不被覆盖.
+     */
     @Override
     protected Map<String, String> doFind(String prefix) {
         LinkedHashMap<String, String> result = new LinkedHashMap<>();
         for (Source source : sources) {
-            result.putAll(source.find(prefix));
+            source.forEach(prefix, result::putIfAbsent);
         }
         return result;
     }
 
+    /**
+     * 有合并索引时，通过前面的{@link TrieTree}判断key是否已经被访问过，不需要记录已访问的key.
+     */
+    @Override
+    protected void doForEach(String prefix, BiConsumer<String, String> consumer) {
+        ResolutionIndex index = this.index;
+        if (index.tries == null || index.isStale()) {
+            Set<String> visited = new HashSet<>();
+            for (Source source : sources) {
+                source.forEach(prefix, (key, value) -> {
+                    if (visited.add(key)) {
+                        consumer.accept(key, value);
+                    }
+                });
+            }
+            return;
+        }
+        TrieTree[] trees = index.trees;
+        FrozenTrie[] tries = index.tries;
+        for (int i = 0; i < trees.length; i++) {
+            int current = i;
+            trees[i].forEach(prefix, (key, value) -> {
+                for (int j = 0; j < current; j++) {
+                    if (tries[j].hasEntry(key)) {
+                        return;
+                    }
+                }
+                consumer.accept(key, value);
+            });
+        }
+    }
+
+
+    @Override
+    public String toString() {
+        return "CompositeSource{" +
+                "sources=" + sources +
+                '}';
+    }
+
+    /**
+     * 在{@link CompletableFuture}中传递受检的{@link LoadException}.
+     */
+    private static final class SourceLoadFailure extends RuntimeException {
+
+        SourceLoadFailure(LoadException cause) {
+            super(cause);
+        }
+
+    }
+
+    /**
+     * 合并索引，记录建立时每个{@link Source}的{@link TrieTree}，任何一个被替换即失效，失效期间读取方逐个查找，直到重建.
+     */
+    private static final class ResolutionIndex {
+
+        /**
+         * 所有的{@link Source}都不存在此key.
+         */
+        static final long miss = -1;
+        /**
+         * 需要逐个查找.
+         */
+        static final long traverse = -2;
+        /**
+         * 存在不支持索引的{@link Source}，直到重新注册.
+         */
+        static final ResolutionIndex disabled = new ResolutionIndex(new AbstractTreeBasedSource[0],
+                new TrieTree[0], null);
+
+        final AbstractTreeBasedSource[] children;
+        final TrieTree[] trees;
+        /**
+         * trees的冻结形式，null表示不可用(存在未加载的{@link Source}).
+         */
+        final FrozenTrie[] tries;
+        /**
+         * 开放地址法哈希表，负载因子不超过0.5: 完整key的哈希值(与{@link String#hashCode()}相同)及
+         * (序号 << 32 | 节点下标) + 1，0表示空槽.
+         */
+        private final int[] hashes;
+        private final long[] slots;
+
+        ResolutionIndex(AbstractTreeBasedSource[] children, TrieTree[] trees, FrozenTrie[] tries) {
+            this.children = children;
+            this.trees = trees;
+            this.tries = tries;
+            if (tries == null) {
+                this.hashes = null;
+                this.slots = null;
+                return;
+            }
+            int total = 0;
+            for (FrozenTrie trie : tries) {
+                total += trie.size();
+            }
+            int n = 2;
+            while (n < total * 2) {
+                n <<= 1;
+            }
+            this.hashes = new int[n];
+            this.slots = new long[n];
+            for (int i = 0; i < tries.length; i++) {
+                FrozenTrie trie = tries[i];
+                for (int j = 0, l = trie.size(); j < l; j++) {
+                    if (trie.isLeaf(j) && trie.values[j] == null) {
+                        //没有值，交给后面的Source
+                        continue;
+                    }
+                    insert(i, trie, j);
+                }
+            }
+        }
+
+        /**
+         * 先注册的{@link Source}优先，同一个{@link Source}中重复的key以后者为准，与{@link FrozenTrie#indexOf(String)}一致.
+         */
+        private void insert(int child, FrozenTrie trie, int node) {
+            int hash = trie.hashes[node], mask = slots.length - 1;
+            int slot = spread(hash) & mask;
+            for (long entry; (entry = slots[slot]) != 0; slot = (slot + 1) & mask) {
+                if (hashes[slot] == hash && tries[child(entry - 1)].sameKey(node(entry - 1), trie, node)) {
+                    if (child(entry - 1) == child) {
+                        slots[slot] = position(child, node) + 1;
+                    }
+                    return;
+                }
+            }
+            hashes[slot] = hash;
+            slots[slot] = position(child, node) + 1;
+        }
+
+        private static long position(int child, int node) {
+            return ((long) child << 32) | node;
+        }
+
+        private static int spread(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+
+        boolean isUsable(String key) {
+            return (tries != null && key != null && isIndexable(key) && !isStale());
+        }
+
+        /**
+         * 查找第一个拥有key的值的{@link Source}.
+         *
+         * @return 高32位为{@link Source}的序号，低32位为其{@link FrozenTrie}中的节点下标，或者{@link #miss}、{@link #traverse}
+         */
+        long resolve(String key) {
+            int hash = key.hashCode(), mask = slots.length - 1;
+            for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+                long entry = slots[slot];
+                if (entry == 0) {
+                    return miss;
+                }
+                if (hashes[slot] == hash) {
+                    long position = entry - 1;
+                    FrozenTrie trie = tries[child(position)];
+                    int node = node(position);
+                    if (trie.matches(node, key, key.length())) {
+                        //非叶子节点的get会抛出异常，交给逐个查找
+                        return (trie.isLeaf(node) ? position : traverse);
+                    }
+                }
+            }
+        }
+
+        boolean isStale() {
+            for (int i = 0; i < children.length; i++) {
+                if (children[i].holder != trees[i]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * 空白开头(包括空白key)以及末尾为分隔符的key与树中的key不是同一个字符串，不使用索引.
+         */
+        boolean isIndexable(String key) {
+            if (key.isEmpty() || key.charAt(0) <= ' ' || key.charAt(key.length() - 1) == '.') {
+                return false;
+            }
+            for (AbstractTreeBasedSource child : children) {
+                if (!child.isTreeKey(key)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+    }
+
 }
@@ -0,0 +1,80 @@
+package configurator.conf;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 配置变化事件，包含订阅前缀下所有发生变化的key及其新旧值.新增的key旧值为null，删除的key新值为null.
+ *
+ * @author skywalker
+ */
+public final class ConfigChangeEvent {
+
+    private final Source source;
+    private final String prefix;
+    private final long version;
+    private final Map<String, String> oldValues;
+    private final Map<String, String> newValues;
+
+    ConfigChangeEvent(Source source, String prefix, long version, Map<String, String> oldValues,
+                      Map<String, String> newValues) {
+        this.source = source;
+        this.prefix = prefix;
+        this.version = version;
+        this.oldValues = Collections.unmodifiableMap(oldValues);
+        this.newValues = Collections.unmodifiableMap(newValues);
+    }
+
+    public Source getSource() {
+        return source;
+    }
+
+    /**
+     * @return 订阅的前缀，""表示全部
+     */
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * @return 产生此事件时{@link Source#getVersion()}的值
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public Set<String> getChangedKeys() {
+        return newValues.keySet();
+    }
+
+    public String getOldValue(String key) {
+        return oldValues.get(key);
+    }
+
+    public String getNewValue(String key) {
+        return newValues.get(key);
+    }
+
+    /**
+     * @return key -> 旧值，与{@link #getNewValues()}的key相同
+     */
+    public Map<String, String> getOldValues() {
+        return oldValues;
+    }
+
+    public Map<String, String> getNewValues() {
+        return newValues;
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigChangeEvent{" +
+                "prefix='" + prefix + '\'' +
+                ", version=" + version +
+                ", oldValues=" + oldValues +
+                ", newValues=" + newValues +
+                '}';
+    }
+
+}
@@ -0,0 +1,16 @@
+package configurator.conf;
+
+/**
+ * 配置变化的订阅者，通过{@link ChangeNotifier#subscribe(String, ConfigChangeListener)}按前缀订阅.
+ *
+ * @author skywalker
+ */
+@FunctionalInterface
+public interface ConfigChangeListener {
+
+    /**
+     * @param event 一次(或者被合并的多次)重新加载中订阅前缀下发生变化的配置
+     */
+    void onChange(ConfigChangeEvent event);
+
+}
@@ -0,0 +1,115 @@
+package configurator.conf;
+
+import configurator.util.Util;
+
+/**
+ * 预先解析的配置key，通过{@link Source#key(String, Class)}获得，类似于预编译的sql语句: 重复读取同一个key时不需要每次都
+ * 分割、查找.
+ * <p>{@link #get()}返回T类型(装箱)的值，基本类型的getXXX方法不装箱.重新加载之后仍然有效，读取到的是新加载的值.</p>
+ * <p>此默认实现每次委托给{@link Source}，基于{@link TrieTree}的来源会记住key在冻结的树中的位置，直接读取值及其缓存的
+ * 类型化形式.</p>
+ *
+ * @param <T> 值类型: String以及int、long、double、boolean(及其包装类型)
+ * @author skywalker
+ */
+public class ConfigKey<T> {
+
+    private final Source source;
+    final String name;
+    private final Class<T> type;
+
+    @SuppressWarnings("unchecked")
+    ConfigKey(Source source, String name, Class<T> type) {
+        if (Util.isEmpty(name)) {
+            throw new IllegalArgumentException("Param 'name' can not be null or empty.");
+        }
+        if (type == null) {
+            throw new IllegalArgumentException("Param 'type' can not be null.");
+        }
+        this.source = source;
+        this.name = name;
+        this.type = (Class<T>) wrap(type);
+    }
+
+    private static Class<?> wrap(Class<?> type) {
+        if (type == String.class || type == Integer.class || type == Long.class || type == Double.class ||
+                type == Boolean.class) {
+            return type;
+        }
+        if (type == int.class) {
+            return Integer.class;
+        }
+        if (type == long.class) {
+            return Long.class;
+        }
+        if (type == double.class) {
+            return Double.class;
+        }
+        if (type == boolean.class) {
+            return Boolean.class;
+        }
+        throw new IllegalArgumentException("Unsupported config key type: " + type.getName() + ".");
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return 值类型，基本类型为其包装类型
+     */
+    public Class<T> getType() {
+        return type;
+    }
+
+    /**
+     * T类型的值.
+     *
+     * @return String类型且key不存在时返回null
+     * @throws NumberFormatException 数值类型且值不是合法的数字(包括key不存在)
+     */
+    public T get() {
+        Object value;
+        if (type == String.class) {
+            value = getString();
+        } else if (type == Integer.class) {
+            value = getInt();
+        } else if (type == Long.class) {
+            value = getLong();
+        } else if (type == Double.class) {
+            value = getDouble();
+        } else {
+            value = getBoolean();
+        }
+        return type.cast(value);
+    }
+
+    public String getString() {
+        return source.get(name);
+    }
+
+    public int getInt() {
+        return source.getInt(name);
+    }
+
+    public long getLong() {
+        return source.getLong(name);
+    }
+
+    public double getDouble() {
+        return source.getDouble(name);
+    }
+
+    public boolean getBoolean() {
+        return source.getBoolean(name);
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigKey{" +
+                "name='" + name + '\'' +
+                ", type=" + type.getSimpleName() +
+                '}';
+    }
+
+}
@@ -0,0 +1,702 @@
+package configurator.conf;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.BiConsumer;
+
+/**
+ * {@link TrieTree#freeze()}的结果，不可变的扁平化存储:
+ * <ul>
+ * <li>所有节点按深度优先的先序排列，节点i的子树为[i, ends[i])，叶子节点满足ends[i] == i + 1.</li>
+ * <li>节点只保存自己的段及父节点下标，完整的key不单独保存.</li>
+ * <li>以完整key的哈希值(与{@link String#hashCode()}相同)建立开放地址法哈希表，一次探测即可定位节点，
+ * 再沿父节点链逐段比较确认.</li>
+ * <li>元信息稀疏，单独保存: 有元信息的节点下标升序排列，其元信息位于metaKeys/metaValues的[metaOffsets[j], metaOffsets[j + 1]).</li>
+ * <li>值的long、double及boolean形式在第一次类型化读取时解析并缓存，缓存只为被读取过的节点分配，见{@link TypedCache}.</li>
+ * <li>{@link Builder}还为每个节点保存一个类型标记，其含义由使用者定义(比如json值的类型)，其它方式创建时为null.</li>
+ * </ul>
+ *
+ * @author skywalker
+ */
+final class FrozenTrie {
+
+    private static final char separator = '.';
+
+    final String[] segments;
+    /**
+     * 父节点下标，顶层节点为-1.
+     */
+    final int[] parents;
+    final int[] ends;
+    final String[] values;
+    final int[] hashes;
+    /**
+     * 哈希槽，保存节点下标 + 1, 0表示空槽.
+     */
+    private final int[] table;
+
+    final int[] metaNodes;
+    final int[] metaOffsets;
+    final String[] metaKeys;
+    final String[] metaValues;
+    /**
+     * 节点的类型标记，可以为null.
+     */
+    final byte[] types;
+
+    /**
+     * 第一次类型化读取时才分配.
+     */
+    private volatile TypedCache typedCache;
+    /**
+     * 是否存在完整key相同的节点，只有{@link Builder}追加的节点可能重复，见{@link Builder#build()}.
+     */
+    final boolean duplicated;
+
+    FrozenTrie(String[] segments, int[] parents, int[] ends, String[] values, int[] metaNodes, int[] metaOffsets,
+               String[] metaKeys, String[] metaValues, byte[] types) {
+        this.segments = segments;
+        this.parents = parents;
+        this.ends = ends;
+        this.values = values;
+        this.metaNodes = metaNodes;
+        this.metaOffsets = metaOffsets;
+        this.metaKeys = metaKeys;
+        this.metaValues = metaValues;
+        this.types = types;
+        int size = segments.length;
+        this.hashes = new int[size];
+        this.table = new int[tableSize(size)];
+        int mask = table.length - 1;
+        boolean duplicated = false;
+        for (int i = 0; i < size; i++) {
+            int hash = (parents[i] < 0 ? 0 : 31 * hashes[parents[i]] + separator);
+            String segment = segments[i];
+            for (int j = 0, l = segment.length(); j < l; j++) {
+                hash = 31 * hash + segment.charAt(j);
+            }
+            hashes[i] = hash;
+            int slot = spread(hash) & mask;
+            while (table[slot] != 0) {
+                if (hashes[table[slot] - 1] == hash && samePath(table[slot] - 1, i)) {
+                    duplicated = true;
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = i + 1;
+        }
+        this.duplicated = duplicated;
+    }
+
+    /**
+     * 两个节点的完整key是否相同.重复的key以后者为准.
+     */
+    private boolean samePath(int a, int b) {
+        while (a >= 0 && b >= 0) {
+            if (a == b) {
+                return true;
+            }
+            if (!segments[a].equals(segments[b])) {
+                return false;
+            }
+            a = parents[a];
+            b = parents[b];
+        }
+        return (a == b);
+    }
+
+    /**
+     * 此树的节点index与other的节点otherIndex的完整key是否相同.
+     */
+    boolean sameKey(int index, FrozenTrie other, int otherIndex) {
+        int a = index, b = otherIndex;
+        while (a >= 0 && b >= 0) {
+            if (!segments[a].equals(other.segments[b])) {
+                return false;
+            }
+            a = parents[a];
+            b = other.parents[b];
+        }
+        return (a == b);
+    }
+
+    /**
+     * 负载因子不超过0.5.
+     */
+    private static int tableSize(int size) {
+        int n = 2;
+        while (n < size * 2) {
+            n <<= 1;
+        }
+        return n;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    int size() {
+        return segments.length;
+    }
+
+    boolean isLeaf(int index) {
+        return (ends[index] == index + 1);
+    }
+
+    /**
+     * @return 每个节点的完整key，与节点下标一一对应
+     */
+    String[] keys() {
+        String[] keys = new String[size()];
+        for (int i = 0; i < keys.length; i++) {
+            int parent = parents[i];
+            keys[i] = (parent < 0 ? segments[i] : keys[parent] + separator + segments[i]);
+        }
+        return keys;
+    }
+
+    /**
+     * @return 节点index的完整key
+     */
+    String keyOf(int index) {
+        StringBuilder key = new StringBuilder(segments[index]);
+        for (int node = parents[index]; node >= 0; node = parents[node]) {
+            key.insert(0, separator).insert(0, segments[node]);
+        }
+        return key.toString();
+    }
+
+    /**
+     * 定位key对应的节点，与String.split相同，忽略末尾的分隔符.
+     *
+     * @return 节点下标，-1表示不存在
+     */
+    int indexOf(String key) {
+        int end = key.length();
+        while (end > 0 && key.charAt(end - 1) == separator) {
+            end--;
+        }
+        if (end == 0) {
+            return -1;
+        }
+        int hash;
+        if (end == key.length()) {
+            hash = key.hashCode();
+        } else {
+            hash = 0;
+            for (int i = 0; i < end; i++) {
+                hash = 31 * hash + key.charAt(i);
+            }
+        }
+        int mask = table.length - 1;
+        for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+            int index = table[slot] - 1;
+            if (index < 0) {
+                return -1;
+            }
+            if (hashes[index] == hash && matches(index, key, end)) {
+                return index;
+            }
+        }
+    }
+
+    /**
+     * 从末尾开始沿父节点链逐段比较key的[0, end).
+     */
+    boolean matches(int index, String key, int end) {
+        int position = end;
+        for (int node = index; node >= 0; node = parents[node]) {
+            String segment = segments[node];
+            int length = segment.length();
+            position -= length;
+            if (position < 0 || !key.regionMatches(position, segment, 0, length)) {
+                return false;
+            }
+            if (parents[node] >= 0) {
+                if (position == 0 || key.charAt(position - 1) != separator) {
+                    return false;
+                }
+                position--;
+            }
+        }
+        return (position == 0);
+    }
+
+    /**
+     * @return node的元信息在{@link #metaNodes}中的位置，没有时返回负数
+     */
+    int metaPosition(int node) {
+        return Arrays.binarySearch(metaNodes, node);
+    }
+
+    String getMetaData(int node, String metaDataKey) {
+        int position = metaPosition(node);
+        if (position >= 0) {
+            for (int i = metaOffsets[position], l = metaOffsets[position + 1]; i < l; i++) {
+                if (metaKeys[i].equals(metaDataKey)) {
+                    return metaValues[i];
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 与{@link LinkedHashMap#toString()}的格式相同.
+     */
+    private String metaDataToString(int position) {
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = metaOffsets[position], l = metaOffsets[position + 1]; i < l; i++) {
+            if (i > metaOffsets[position]) {
+                sb.append(", ");
+            }
+            sb.append(metaKeys[i]).append('=').append(metaValues[i]);
+        }
+        return sb.append('}').toString();
+    }
+
+    /**
+     * 前缀搜索，prefix为""时返回所有的键值对.
+     */
+    Map<String, String> find(String prefix) {
+        Map<String, String> result = new LinkedHashMap<>(0);
+        forEach(prefix, result::put);
+        return result;
+    }
+
+    /**
+     * 按先序依次访问前缀搜索的结果，不创建中间的{@link Map}.key在同一个缓冲区中拼接，只为访问到的键值对创建字符串.
+     */
+    void forEach(String prefix, BiConsumer<String, String> consumer) {
+        int end = prefix.length();
+        while (end > 0 && prefix.charAt(end - 1) == separator) {
+            end--;
+        }
+        StringBuilder key = new StringBuilder(64);
+        //当前路径上的非叶子节点及其key的长度
+        int[] path = new int[16], lengths = new int[16];
+        int depth = 0, from, to;
+        if (end == 0) {
+            from = 0;
+            to = size();
+        } else {
+            int index = indexOf(prefix);
+            if (index < 0) {
+                return;
+            }
+            key.append(prefix, 0, end);
+            accept(index, key, consumer);
+            path[depth] = index;
+            lengths[depth++] = end;
+            from = index + 1;
+            to = ends[index];
+        }
+        for (int i = from; i < to; i++) {
+            int parent = parents[i];
+            while (depth > 0 && path[depth - 1] != parent) {
+                depth--;
+            }
+            if (depth == 0) {
+                key.setLength(0);
+            } else {
+                key.setLength(lengths[depth - 1]);
+                key.append(separator);
+            }
+            key.append(segments[i]);
+            accept(i, key, consumer);
+            if (!isLeaf(i)) {
+                if (depth == path.length) {
+                    path = Arrays.copyOf(path, depth * 2);
+                    lengths = Arrays.copyOf(lengths, depth * 2);
+                }
+                path[depth] = i;
+                lengths[depth++] = key.length();
+            }
+        }
+    }
+
+    /**
+     * 叶子节点保存值及元信息，非叶子节点只保存元信息.
+     */
+    private void accept(int index, StringBuilder key, BiConsumer<String, String> consumer) {
+        int position = metaPosition(index);
+        if (isLeaf(index)) {
+            consumer.accept(key.toString(), position >= 0 ? values[index] + metaDataToString(position) : values[index]);
+        } else if (position >= 0) {
+            consumer.accept(key.toString(), metaDataToString(position));
+        }
+    }
+
+    /**
+     * @return true，如果key会出现在{@link #find(String)}的结果中
+     */
+    boolean hasEntry(String key) {
+        int index = indexOf(key);
+        return (index >= 0 && (isLeaf(index) || metaPosition(index) >= 0));
+    }
+
+    /**
+     * 解析失败时不缓存，每次都抛出与{@link Long#parseLong(String)}相同的异常.
+     */
+    long getLong(int index) {
+        TypedCache cache = typedCache();
+        TypedCache.Table table = cache.table;
+        int slot = table.slotOf(index);
+        if ((table.state(slot) & TypedCache.LONG) != 0) {
+            return table.longs[slot];
+        }
+        long value = Long.parseLong(values[index]);
+        cache.put(index, TypedCache.LONG, value);
+        return value;
+    }
+
+    double getDouble(int index) {
+        TypedCache cache = typedCache();
+        TypedCache.Table table = cache.table;
+        int slot = table.slotOf(index);
+        if ((table.state(slot) & TypedCache.DOUBLE) != 0) {
+            return Double.longBitsToDouble(table.doubles[slot]);
+        }
+        double value = Double.parseDouble(values[index]);
+        cache.put(index, TypedCache.DOUBLE, Double.doubleToRawLongBits(value));
+        return value;
+    }
+
+    boolean getBoolean(int index) {
+        TypedCache cache = typedCache();
+        TypedCache.Table table = cache.table;
+        int state = table.state(table.slotOf(index));
+        if ((state & TypedCache.BOOLEAN) != 0) {
+            return (state & TypedCache.TRUE) != 0;
+        }
+        boolean value = Boolean.parseBoolean(values[index]);
+        cache.put(index, value ? TypedCache.BOOLEAN | TypedCache.TRUE : TypedCache.BOOLEAN, 0);
+        return value;
+    }
+
+    private TypedCache typedCache() {
+        TypedCache cache = typedCache;
+        if (cache == null) {
+            synchronized (this) {
+                cache = typedCache;
+                if (cache == null) {
+                    typedCache = cache = new TypedCache();
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * 以节点下标为key的开放地址法哈希表，大小只与被类型化读取过的节点数有关.每个槽一个状态位集合及两个long
+     * (double以其位模式保存)，避免装箱.
+     * <p>写入互斥，读取不加锁: 先写槽再以volatile写设置状态位，读取时先读状态位再读槽，状态位可见时槽的写入一定可见.
+     * 扩容时写入一张新表再以volatile写替换，正在读取旧表的线程仍然读到一致的结果(最多重新解析一次).</p>
+     */
+    private static final class TypedCache {
+
+        static final int LONG = 1;
+        static final int DOUBLE = 1 << 1;
+        static final int BOOLEAN = 1 << 2;
+        static final int TRUE = 1 << 3;
+
+        volatile Table table = new Table(8);
+        private int count;
+
+        synchronized void put(int index, int bits, long value) {
+            Table table = this.table;
+            int slot = table.slotOf(index);
+            if (slot < 0) {
+                //负载因子不超过0.5
+                if ((count + 1) * 2 > table.keys.length) {
+                    table = table.resize();
+                }
+                slot = table.insert(index);
+                count++;
+            }
+            if ((bits & LONG) != 0) {
+                table.longs[slot] = value;
+            }
+            if ((bits & DOUBLE) != 0) {
+                table.doubles[slot] = value;
+            }
+            table.states.set(slot, table.states.get(slot) | bits);
+            this.table = table;
+        }
+
+        static final class Table {
+
+            /**
+             * 节点下标 + 1, 0表示空槽，写入之后不再改变.
+             */
+            private final int[] keys;
+            final AtomicIntegerArray states;
+            final long[] longs;
+            final long[] doubles;
+
+            Table(int capacity) {
+                this.keys = new int[capacity];
+                this.states = new AtomicIntegerArray(capacity);
+                this.longs = new long[capacity];
+                this.doubles = new long[capacity];
+            }
+
+            /**
+             * @return 节点所在的槽，不存在时返回-1
+             */
+            int slotOf(int index) {
+                int mask = keys.length - 1;
+                for (int slot = spread(index) & mask; ; slot = (slot + 1) & mask) {
+                    int key = keys[slot];
+                    if (key == index + 1) {
+                        return slot;
+                    }
+                    if (key == 0) {
+                        return -1;
+                    }
+                }
+            }
+
+            int state(int slot) {
+                return (slot < 0 ? 0 : states.get(slot));
+            }
+
+            private int insert(int index) {
+                int mask = keys.length - 1;
+                int slot = spread(index) & mask;
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = index + 1;
+                return slot;
+            }
+
+            private Table resize() {
+                Table table = new Table(keys.length * 2);
+                for (int i = 0; i < keys.length; i++) {
+                    if (keys[i] != 0) {
+                        int slot = table.insert(keys[i] - 1);
+                        table.states.set(slot, states.get(i));
+                        table.longs[slot] = longs[i];
+                        table.doubles[slot] = doubles[i];
+                    }
+                }
+                return table;
+            }
+
+            private static int spread(int index) {
+                int hash = index * 0x9E3779B9;
+                return hash ^ (hash >>> 16);
+            }
+
+        }
+
+    }
+
+    /**
+     * 按先序直接追加节点，不需要先构建节点树，适用于本身就是先序产生节点的流式解析(比如json)，不支持元信息.
+     * <p>成员名与{@link TrieTree#add}一样按"."拆分为多段，因此可能出现完整key相同的兄弟节点，{@link #build()}时再合并.</p>
+     */
+    static final class Builder {
+
+        private static final char separator = '.';
+        /**
+         * 与{@link TrieTree}的多值分隔符相同.
+         */
+        private static final String multiSeparator = ",";
+
+        private String[] segments = new String[64];
+        private int[] parents = new int[64];
+        private int[] ends = new int[64];
+        private String[] values = new String[64];
+        private byte[] types = new byte[64];
+        /**
+         * 由带"."的成员名拆分出的、除最后一段之外的节点，其唯一的子节点是成员名的下一段.
+         */
+        private final BitSet continued = new BitSet();
+        private int size;
+
+        /**
+         * 追加一个节点，其子节点必须紧随其后追加，然后调用{@link #close(int)}.
+         *
+         * @param parent 父节点下标，顶层节点为-1
+         * @param value  值，非叶子节点为null
+         * @param type   值的类型标记
+         * @return 节点下标
+         */
+        int add(int parent, String segment, String value, byte type) {
+            if (size == segments.length) {
+                int capacity = size + (size >> 1);
+                segments = Arrays.copyOf(segments, capacity);
+                parents = Arrays.copyOf(parents, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+                values = Arrays.copyOf(values, capacity);
+                types = Arrays.copyOf(types, capacity);
+            }
+            segments[size] = segment;
+            parents[size] = parent;
+            ends[size] = size + 1;
+            values[size] = value;
+            types[size] = type;
+            continued.clear(size);
+            return size++;
+        }
+
+        /**
+         * 追加一个成员，name按"."拆分为多段，与{@link TrieTree#add}相同，忽略末尾的分隔符.成员的子节点紧随其后追加，
+         * 然后调用{@link #closeMember(int)}.
+         *
+         * @param value 值，object成员为null
+         * @param type  值的类型标记，拆分出的其它节点为0
+         * @return 成员名最后一段的节点下标
+         * @throws IllegalArgumentException 如果name没有任何段
+         */
+        int addMember(int parent, String name, String value, byte type, StringPool pool) {
+            int end = name.length();
+            while (end > 0 && name.charAt(end - 1) == separator) {
+                end--;
+            }
+            if (end == 0) {
+                throw new IllegalArgumentException("Given key '" + name + "' has no segments.");
+            }
+            int node = parent;
+            for (int from = 0; ; ) {
+                int to = name.indexOf(separator, from);
+                if (to < 0 || to >= end) {
+                    return add(node, pool.intern(name, from, end), value, type);
+                }
+                node = add(node, pool.intern(name, from, to), null, (byte) 0);
+                continued.set(node);
+                from = to + 1;
+            }
+        }
+
+        /**
+         * 成员的所有子节点都已追加，依次关闭成员名拆分出的节点.
+         *
+         * @param index {@link #addMember}的返回值
+         */
+        void closeMember(int index) {
+            close(index);
+            for (int node = parents[index]; node >= 0 && continued.get(node); node = parents[node]) {
+                close(node);
+            }
+        }
+
+        /**
+         * 节点的所有子节点都已追加.没有任何子节点的非叶子节点(比如json中的空object)被丢弃.
+         */
+        void close(int index) {
+            if (size == index + 1 && values[index] == null) {
+                size--;
+            } else {
+                ends[index] = size;
+            }
+        }
+
+        /**
+         * 存在重复的key时重新排列，结果与先构建{@link TrieTree}再冻结相同:
+         * <ul>
+         * <li>同一个json object中同名的成员以后者为准，前者连同其子树被丢弃.</li>
+         * <li>拆分之后完整key相同的兄弟节点合并为一个，子节点按第一次出现的顺序排列，值以","连接，连接之后的类型标记为0.</li>
+         * </ul>
+         */
+        FrozenTrie build() {
+            FrozenTrie trie = create();
+            if (!trie.duplicated) {
+                return trie;
+            }
+            boolean[] discarded = new boolean[size];
+            discardOverridden(-1, discarded);
+            for (int i = 0; i < size; i++) {
+                if (!continued.get(i) && !isLeaf(i)) {
+                    discardOverridden(i, discarded);
+                }
+            }
+            Builder merged = new Builder();
+            merge(merged, -1, Collections.singletonList(-1), discarded);
+            return merged.create();
+        }
+
+        private FrozenTrie create() {
+            return new FrozenTrie(Arrays.copyOf(segments, size), Arrays.copyOf(parents, size),
+                    Arrays.copyOf(ends, size), Arrays.copyOf(values, size), new int[0], new int[]{0},
+                    new String[0], new String[0], Arrays.copyOf(types, size));
+        }
+
+        private boolean isLeaf(int index) {
+            return (ends[index] == index + 1);
+        }
+
+        /**
+         * 节点(-1为顶层)的第一个子节点，之后的兄弟节点为ends[child].
+         */
+        private int firstChild(int owner) {
+            return owner + 1;
+        }
+
+        private int childrenEnd(int owner) {
+            return (owner < 0 ? size : ends[owner]);
+        }
+
+        /**
+         * object的成员中，被后面的同名成员覆盖的标记为丢弃.
+         *
+         * @param object object对应的节点下标，顶层为-1
+         */
+        private void discardOverridden(int object, boolean[] discarded) {
+            Map<String, Integer> members = new HashMap<>();
+            for (int child = firstChild(object), end = childrenEnd(object); child < end; child = ends[child]) {
+                Integer previous = members.put(memberName(child), child);
+                if (previous != null) {
+                    discarded[previous] = true;
+                }
+            }
+        }
+
+        /**
+         * 还原成员名: 沿拆分出的节点向下拼接.
+         */
+        private String memberName(int index) {
+            if (!continued.get(index)) {
+                return segments[index];
+            }
+            StringBuilder name = new StringBuilder(segments[index]);
+            for (int node = index; continued.get(node); ) {
+                node++;
+                name.append(separator).append(segments[node]);
+            }
+            return name.toString();
+        }
+
+        /**
+         * 将owners(完整key相同的一组节点)的子节点按段分组，每组合并为merged中parent下的一个节点.
+         */
+        private void merge(Builder merged, int parent, List<Integer> owners, boolean[] discarded) {
+            Map<String, List<Integer>> groups = new LinkedHashMap<>();
+            for (int owner : owners) {
+                for (int child = firstChild(owner), end = childrenEnd(owner); child < end; child = ends[child]) {
+                    if (!discarded[child]) {
+                        groups.computeIfAbsent(segments[child], segment -> new ArrayList<>(1)).add(child);
+                    }
+                }
+            }
+            groups.forEach((segment, group) -> {
+                String value = null;
+                byte type = 0;
+                for (int node : group) {
+                    if (values[node] != null) {
+                        type = (value == null ? types[node] : 0);
+                        value = (value == null ? values[node] : value + multiSeparator + values[node]);
+                    }
+                }
+                int index = merged.add(parent, segment, value, type);
+                merge(merged, index, group, discarded);
+                merged.close(index);
+            });
+        }
+
+    }
+
+}
@@ -2,225 +2,362 @@ package configurator.conf;
 
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONException;
 import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.JSONReader;
+import com.alibaba.fastjson.parser.JSONLexer;
+import com.alibaba.fastjson.parser.JSONReaderScanner;
+import com.alibaba.fastjson.parser.JSONToken;
 import configurator.conf.exception.LoadException;
 
 import java.io.*;
-import java.math.BigDecimal;
-import java.util.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
 /**
  * json配置文件来源.
  * <p>不支持object数组格式.</p>
+ * <p>加载时将所有叶子节点展开为以"."连接的key，保存在冻结的{@link TrieTree}中，查找只需一次哈希探测，前缀搜索只需遍历
+ * 连续的子树区间: 基本类型的值保存为其字符串形式，数组保存为json文本(空数组为"")，{@link #getStringArray(String)}时再解析，
+ * null值及空object被忽略.每个值的json类型同时保存在树中，因此:</p>
+ * <ul>
+ * <li>对object节点调用{@link #get(String)}返回其json文本，由子树按需生成.</li>
+ * <li>getInt/getLong/getDouble只读取json数字，getBoolean只读取json布尔值，不解析json字符串.</li>
+ * <li>前缀搜索的结果中含有非基本类型的数组时抛出{@link IllegalStateException}.</li>
+ * </ul>
+ * <p>有两种加载模式，结果相同:</p>
+ * <ul>
+ * <li>默认: 将整个文件读为字符串并解析为{@link JSONObject}，再按先序追加到{@link FrozenTrie.Builder}.</li>
+ * <li>流式: 边读取边将叶子节点按先序追加到{@link FrozenTrie.Builder}，不需要完整的字符串、{@link JSONObject}以及节点树，
+ * 不依赖换行.</li>
+ * </ul>
  *
  * @author skywalker
  */
-public class JsonSource extends AbstractPathBasedSource {
+public class JsonSource extends AbstractTreeBasedSource {
 
-    private JSONObject json;
+    /**
+     * 值的json类型，保存为{@link FrozenTrie#types}.合并之后以","连接的值为字符串.
+     */
+    private static final byte STRING = 0;
+    private static final byte NUMBER = 1;
+    private static final byte BOOLEAN = 2;
+    private static final byte ARRAY = 3;
+    /**
+     * 含有object或者数组的数组.
+     */
+    private static final byte MIXED_ARRAY = 4;
+
+    private final boolean streaming;
 
     public JsonSource(String path) {
+        this(path, false);
+    }
+
+    /**
+     * @param streaming 是否使用流式加载
+     */
+    public JsonSource(String path, boolean streaming) {
         super(path);
+        this.streaming = streaming;
     }
 
     @Override
-    public void load() throws LoadException {
+    protected TrieTree loadTree() throws LoadException {
+        //生成的json配置中大量重复的key及短值，去重可以显著降低内存
+        StringPool pool = (getStringPool() != null ? getStringPool() : new StringPool());
+        FrozenTrie.Builder builder = new FrozenTrie.Builder();
         try {
-            String data = readAsString();
-            Object o = JSON.parse(data);
-            if (!(o instanceof JSONObject)) {
-                throw new IllegalStateException("We support json object only.");
+            if (streaming) {
+                loadStreaming(builder, pool);
+            } else {
+                Object o = JSON.parse(readAsString());
+                if (!(o instanceof JSONObject)) {
+                    throw new IllegalStateException("We support json object only.");
+                }
+                collect(builder, -1, JSONObject.class.cast(o), pool);
             }
-            json = JSONObject.class.cast(o);
         } catch (Exception e) {
             throw new LoadException(e);
         }
-
+        return new TrieTree(builder.build());
     }
 
     /**
-     * 将json配置文件读取为字符串.
+     * 递归地将object的成员按先序追加到builder.
      */
-    private String readAsString() throws IOException {
-        List<String> lines = new ArrayList<>();
-        BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(super.path)));
-        String line;
-        while ((line = br.readLine()) != null) {
-            lines.add(line);
-        }
-        return String.join("", lines);
+    private void collect(FrozenTrie.Builder builder, int parent, JSONObject object, StringPool pool) {
+        object.forEach((name, o) -> {
+            if (o instanceof JSONObject) {
+                int index = builder.addMember(parent, name, null, STRING, pool);
+                collect(builder, index, (JSONObject) o, pool);
+                builder.closeMember(index);
+            } else if (o != null) {
+                addValue(builder, parent, name, o, pool);
+            }
+        });
     }
 
-    @Override
-    public String get(String key) {
-        Object value = doGet(key);
-        if (value != null) {
-            return value.toString();
+    /**
+     * 追加一个非object、非null的成员.
+     */
+    private void addValue(FrozenTrie.Builder builder, int parent, String name, Object value, StringPool pool) {
+        String text;
+        byte type;
+        if (value instanceof JSONArray) {
+            JSONArray array = JSONArray.class.cast(value);
+            text = (array.isEmpty() ? "" : array.toString());
+            type = (isPrimitiveArray(array) ? ARRAY : MIXED_ARRAY);
+        } else {
+            text = value.toString();
+            type = (value instanceof Number ? NUMBER : value instanceof Boolean ? BOOLEAN : STRING);
         }
-        return null;
+        builder.closeMember(builder.addMember(parent, name, pool.intern(text), type, pool));
     }
 
-    private Object doGet(String key) {
-        String[] parts = resolveKey(key);
-        String[] parents = extractParents(parts);
-        JSONObject node = seekTo(parents);
-        Object result = null;
-        if (node != null) {
-            result = node.get(parts[parents.length]);
+    /**
+     * 流式加载.json本身就是以先序产生节点的，所以直接追加到{@link FrozenTrie.Builder}，不需要构建节点树.
+     */
+    private void loadStreaming(FrozenTrie.Builder builder, StringPool pool) throws IOException {
+        try (Reader in = new InputStreamReader(new FileInputStream(path), StandardCharsets.UTF_8)) {
+            JSONLexer lexer = new JSONReaderScanner(in);
+            JSONReader reader = new JSONReader(lexer);
+            if (reader.peek() != JSONToken.LBRACE) {
+                throw new IllegalStateException("We support json object only.");
+            }
+            readObject(reader, lexer, -1, builder, pool);
+            reader.close();
         }
-        return result;
     }
 
     /**
-     * 提取父节点数组，比如有key: plant.apple.name，应该得到:
-     * [plant, apple].
+     * 读取一个object，将其成员按先序追加到builder.带"."的成员名与默认模式一样拆分为多段，重复的key由
+     * {@link FrozenTrie.Builder#build()}合并.
+     * <p>读取key之后{@link JSONReader#peek()}只能看到冒号，所以通过lexer跳过空白查看值的第一个字符.</p>
+     *
+     * @param parent 此object对应的节点下标，顶层为-1
      */
-    private String[] extractParents(String[] parts) {
-        String[] parents = new String[parts.length - 1];
-        System.arraycopy(parts, 0, parents, 0, parts.length - 1);
-        return parents;
-    }
-
-    private String[] resolveKey(String key) {
-        checkKey(key);
-        return key.split("\\.");
+    private void readObject(JSONReader reader, JSONLexer lexer, int parent, FrozenTrie.Builder builder,
+                            StringPool pool) {
+        reader.startObject();
+        while (reader.hasNext()) {
+            String name = reader.readString();
+            lexer.skipWhitespace();
+            char first = lexer.getCurrent();
+            if (first == '{') {
+                int index = builder.addMember(parent, name, null, STRING, pool);
+                readObject(reader, lexer, index, builder, pool);
+                builder.closeMember(index);
+            } else {
+                Object value = reader.readObject();
+                if (value != null) {
+                    addValue(builder, parent, name, value, pool);
+                }
+            }
+        }
+        reader.endObject();
     }
 
     /**
-     * 检查给定的key是否为null,如果是，抛出{@link IllegalArgumentException}.
+     * 将json配置文件读取为字符串.
      */
-    private void checkKey(String key) {
-        if (key == null || key.trim().equals("")) {
-            throw new IllegalArgumentException("Given key can't be null or empty.");
+    private String readAsString() throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(super.path),
+                StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                lines.add(line);
+            }
         }
+        return String.join("", lines);
     }
 
     /**
-     * 定位到叶子key的父节点.
-     *
-     * @return {@link JSONObject}
-     * @throws IllegalStateException 如果指定的节点不存在或者其类型不是{@link JSONObject}
-     */
-    private JSONObject seekTo(String[] parts) {
-        JSONObject node = json;
-        for (int i = 0, l = parts.length; i < l; i++) {
-            Object o = node.get(parts[i]);
-            if (o == null) {
-                return null;
-            }
-            if (!(o instanceof JSONObject)) {
-                throw new IllegalStateException("Key: " + concatParts(parts, i) + " can't be leaf or array node.");
+     * @return object节点返回其json文本
+     */
+    @Override
+    public String get(String key) {
+        TrieTree tree = holder;
+        FrozenTrie frozen = tree.frozen();
+        if (frozen != null && key != null) {
+            int index = frozen.indexOf(key);
+            if (index >= 0 && !frozen.isLeaf(index)) {
+                StringBuilder json = new StringBuilder();
+                appendObject(frozen, index, json);
+                return json.toString();
             }
-            node = JSONObject.class.cast(o);
         }
-        return node;
+        return tree.get(key);
     }
 
     /**
-     * 将部分key还原为字符串.
-     * <p>示例: </p>
-     * <p>给定([cn, sd], 1), 得到cn.sd.</p>
-     *
-     * @param util 截止下标(包含)
+     * 由子树生成object的json文本，与{@link JSONObject#toString()}的格式相同，成员按加载的顺序排列.
      */
-    private String concatParts(String[] parts, int util) {
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i <= util; i++) {
-            sb.append(parts[i]).append(".");
+    private void appendObject(FrozenTrie frozen, int index, StringBuilder json) {
+        json.append('{');
+        for (int child = index + 1, end = frozen.ends[index]; child < end; child = frozen.ends[child]) {
+            if (child > index + 1) {
+                json.append(',');
+            }
+            json.append(JSON.toJSONString(frozen.segments[child])).append(':');
+            String value = frozen.values[child];
+            if (!frozen.isLeaf(child)) {
+                appendObject(frozen, child, json);
+            } else if (typeOf(frozen, child) == STRING) {
+                json.append(JSON.toJSONString(value));
+            } else {
+                json.append(value.isEmpty() ? "[]" : value);
+            }
         }
-        sb.deleteCharAt(sb.length() - 1);
-        return sb.toString();
+        json.append('}');
+    }
+
+    private static byte typeOf(FrozenTrie frozen, int index) {
+        return (frozen.types == null ? STRING : frozen.types[index]);
     }
 
+    /**
+     * @throws IllegalStateException 如果值不是json数字
+     */
     @Override
     public int getInt(String key) {
-        return (int) doGet(key);
+        checkType(key, NUMBER, "number");
+        return super.getInt(key);
     }
 
+    /**
+     * @throws IllegalStateException 如果值不是json数字
+     */
     @Override
     public long getLong(String key) {
-        return (long) doGet(key);
+        checkType(key, NUMBER, "number");
+        return super.getLong(key);
     }
 
+    /**
+     * @throws IllegalStateException 如果值不是json数字
+     */
     @Override
     public double getDouble(String key) {
-        return ((BigDecimal) doGet(key)).doubleValue();
+        checkType(key, NUMBER, "number");
+        return super.getDouble(key);
     }
 
+    /**
+     * @throws IllegalStateException 如果值不是json布尔值
+     */
     @Override
     public boolean getBoolean(String key) {
-        return (boolean) doGet(key);
+        checkType(key, BOOLEAN, "boolean");
+        return super.getBoolean(key);
     }
 
+    /**
+     * @throws IllegalStateException 如果值不是json字符串
+     */
     @Override
     public String[] getStringArray(String key, String separator) {
-        String str = (String) doGet(key);
-        return str.split(separator);
+        checkType(key, STRING, "string");
+        return super.getStringArray(key, separator);
     }
 
+    /**
+     * 类型化读取不经过{@link #getInt(String)}等方法，所以不绑定到树中的位置.
+     */
     @Override
-    public String[] getStringArray(String key) {
-        Object o = doGet(key);
-        if (!(o instanceof JSONArray)) {
-            throw new IllegalStateException("Given key: " + key + " must be a json array.");
-        }
-        JSONArray array = JSONArray.class.cast(o);
-        if (!isPrimitiveArray(array)) {
-            throw new IllegalStateException("Given key: " + key + " must be a primitive array.");
+    public <T> ConfigKey<T> key(String key, Class<T> type) {
+        return new ConfigKey<>(this, key, type);
+    }
+
+    /**
+     * key不存在时不检查，由解析抛出异常.
+     */
+    private void checkType(String key, byte type, String typeName) {
+        TrieTree tree = holder;
+        int index = tree.leafIndex(key);
+        if (index >= 0 && typeOf(tree.frozen(), index) != type) {
+            throw new IllegalStateException("Given key: " + key + " must be a json " + typeName + ".");
         }
-        return array.stream().map(Object::toString)
-                .collect(Collectors.toList()).toArray(new String[0]);
     }
 
+    /**
+     * @throws IllegalStateException 如果结果中含有非基本类型的数组
+     */
     @Override
     protected Map<String, String> doFind(String prefix) {
-        Map<String, String> result = new LinkedHashMap<>();
-        JSONObject parent;
-        if (prefix.equals("")) {
-            parent = json;
-        } else {
-            parent = seekTo(prefix.split("\\."));
-            prefix += ".";
-        }
-        if (parent != null) {
-            collect(result, prefix, parent);
-        }
-        return result;
+        TrieTree tree = holder;
+        checkArrays(tree, prefix);
+        return tree.find(prefix);
+    }
+
+    @Override
+    protected void doForEach(String prefix, BiConsumer<String, String> consumer) {
+        TrieTree tree = holder;
+        checkArrays(tree, prefix);
+        tree.forEach(prefix, consumer);
     }
 
     /**
-     * 递归收集所有节点.
-     *
-     * @throws IllegalStateException 如果含有非基本类型数组
+     * 前缀搜索的范围内不能有非基本类型的数组.
      */
-    private void collect(Map<String, String> result, String prefix, JSONObject parent) {
-        Set<String> keys = parent.keySet();
-        keys.forEach(key -> {
-            Object o = parent.get(key);
-            String newKey = newKey(prefix, key);
-            if (o instanceof JSONObject) {
-                collect(result, newKey + ".", (JSONObject) o);
-            } else if (o instanceof JSONArray) {
-                JSONArray array = JSONArray.class.cast(o);
-                if (array.size() == 0) {
-                    result.put(newKey, "");
-                } else if (!isPrimitiveArray(array)) {
-                    throw new IllegalStateException("We support primitive array only, key: " + newKey + ".");
-                } else {
-                    result.put(newKey, array.toString());
-                }
-            } else {
-                result.put(newKey, o.toString());
+    private void checkArrays(TrieTree tree, String prefix) {
+        FrozenTrie frozen = tree.frozen();
+        if (frozen == null || frozen.types == null) {
+            return;
+        }
+        int from = 0, to = frozen.size();
+        if (!prefix.isEmpty()) {
+            from = frozen.indexOf(prefix);
+            if (from < 0) {
+                return;
             }
-        });
+            to = frozen.ends[from];
+        }
+        for (int i = from; i < to; i++) {
+            if (frozen.types[i] == MIXED_ARRAY) {
+                throw new IllegalStateException("We support primitive array only, key: " + frozen.keyOf(i) + ".");
+            }
+        }
+    }
+
+    @Override
+    public String[] getStringArray(String key) {
+        JSONArray array = parseArray(get(key));
+        if (array == null) {
+            throw new IllegalStateException("Given key: " + key + " must be a json array.");
+        }
+        if (!isPrimitiveArray(array)) {
+            throw new IllegalStateException("Given key: " + key + " must be a primitive array.");
+        }
+        return array.stream().map(Object::toString)
+                .collect(Collectors.toList()).toArray(new String[0]);
     }
 
     /**
-     * 生成新的键值.
+     * 数组保存为json文本.
+     *
+     * @return null, 如果value不是数组
      */
-    private String newKey(String prefix, String key) {
-        return (prefix + key);
+    private JSONArray parseArray(String value) {
+        if (value == null) {
+            return null;
+        }
+        if (value.isEmpty()) {
+            return new JSONArray(0);
+        }
+        if (value.charAt(0) != '[') {
+            return null;
+        }
+        try {
+            return JSON.parseArray(value);
+        } catch (JSONException e) {
+            return null;
+        }
     }
 
     /**
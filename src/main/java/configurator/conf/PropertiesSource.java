@@ -18,11 +18,13 @@ public class PropertiesSource extends AbstractTreeBasedSource {
     }
 
     @Override
-    public void load() throws LoadException {
+    protected void doLoad(TrieTree tree) throws LoadException {
         try {
             Properties properties = new Properties();
-            properties.load(new FileInputStream(path));
-            properties.forEach((key, value) -> holder.addValue((String) key, value.toString()));
+            try (FileInputStream in = new FileInputStream(path)) {
+                properties.load(in);
+            }
+            properties.forEach((key, value) -> tree.addValue((String) key, value.toString()));
         } catch (IOException e) {
             throw new LoadException(e);
         }
@@ -0,0 +1,16 @@
+package configurator.conf;
+
+/**
+ * {@link Source}重新加载的监听器，在新配置发布之后于加载线程中回调.
+ *
+ * @author skywalker
+ */
+@FunctionalInterface
+public interface ReloadListener {
+
+    /**
+     * @param source 重新加载的{@link Source}
+     */
+    void onReload(Source source);
+
+}
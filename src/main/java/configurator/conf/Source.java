@@ -3,6 +3,7 @@ package configurator.conf;
 import configurator.conf.exception.LoadException;
 
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 /**
  * 配置来源.
@@ -12,12 +13,31 @@ import java.util.Map;
 public interface Source {
 
     /**
-     * 加载配置.
+     * 加载配置，可以重复调用以重新加载.
      *
      * @throws LoadException 如果加载失败
      */
     void load() throws LoadException;
 
+    /**
+     * 配置的版本号，每次加载成功之后递增，读取方可以据此判断配置是否变化.
+     *
+     * @return 默认为0，表示不支持
+     */
+    default long getVersion() {
+        return 0;
+    }
+
+    /**
+     * 添加重新加载的监听器，每次成功加载(包括第一次)之后回调.
+     * <p>默认忽略，表示不支持.</p>
+     */
+    default void addReloadListener(ReloadListener listener) {
+    }
+
+    default void removeReloadListener(ReloadListener listener) {
+    }
+
     /**
      * 配置中是否存在指定的key值.
      *
@@ -69,4 +89,24 @@ public interface Source {
      */
     Map<String, String> find(String prefix);
 
+    /**
+     * 属性搜索的流式版本，依次访问与{@link #find(String)}相同的键值对，不创建{@link Map}.
+     *
+     * @param prefix   同{@link #find(String)}
+     * @param consumer 键值对的访问者
+     */
+    default void forEach(String prefix, BiConsumer<String, String> consumer) {
+        find(prefix).forEach(consumer);
+    }
+
+    /**
+     * 预先解析key，重复读取同一个key时使用.
+     *
+     * @param type String、int、long、double、boolean或者其包装类型
+     * @throws IllegalArgumentException 如果type不受支持
+     */
+    default <T> ConfigKey<T> key(String key, Class<T> type) {
+        return new ConfigKey<>(this, key, type);
+    }
+
 }
@@ -0,0 +1,312 @@
+package configurator.conf;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 基于{@link WatchService}的配置文件变化监听，文件变化之后只重新加载对应的{@link Source}.
+ * <p>所有被监听的文件共享一个后台线程，按目录注册.同一个文件的一串连续修改被合并(去抖): 最后一次修改之后的
+ * {@link #debounceNanos}内没有新的修改，并且文件的大小及修改时间在此期间没有变化才重新加载，否则再等待一个去抖周期.
+ * 写入时间可能超过去抖时间的文件(比如较大的文件或者分多次写入)应当先写入同一目录下的临时文件再原子地替换，否则仍然可能
+ * 读取到写了一半的内容.</p>
+ * <p>重新加载在监听线程中执行，抛出{@link Exception}或者{@link LinkageError}时保留原来的配置并交给
+ * {@link #setErrorHandler(BiConsumer)}，监听线程继续运行.其它{@link Error}(比如{@link OutOfMemoryError})不被捕获.</p>
+ * <p>{@link CompositeSource}按其中的每个{@link Source}分别监听，其合并索引在重新加载的{@link Source}通知之后重建.</p>
+ *
+ * @author skywalker
+ */
+public final class SourceWatcher implements Closeable {
+
+    private static final long defaultDebounceMillis = 50;
+    private static final Logger logger = Logger.getLogger(SourceWatcher.class.getName());
+    private static SourceWatcher defaultWatcher;
+
+    private final long debounceNanos;
+    /**
+     * 文件(绝对路径) -> 对应的{@link Source}.
+     */
+    private final Map<Path, List<Source>> files = new HashMap<>();
+    private final Map<Path, WatchKey> directories = new HashMap<>();
+    private WatchService watchService;
+    private Thread thread;
+    private volatile boolean closed;
+    private volatile BiConsumer<Source, Throwable> errorHandler = SourceWatcher::logFailure;
+
+    public SourceWatcher() {
+        this(defaultDebounceMillis);
+    }
+
+    /**
+     * @param debounceMillis 去抖时间，最后一次修改之后等待多久再重新加载
+     */
+    public SourceWatcher(long debounceMillis) {
+        if (debounceMillis < 0) {
+            throw new IllegalArgumentException("Param 'debounceMillis' can't be negative.");
+        }
+        this.debounceNanos = TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+    }
+
+    /**
+     * 进程内共享的监听器，关闭之后再次获取时重新创建.
+     */
+    public static synchronized SourceWatcher getDefault() {
+        if (defaultWatcher == null) {
+            defaultWatcher = new SourceWatcher();
+        }
+        return defaultWatcher;
+    }
+
+    /**
+     * 设置重新加载失败时的处理器，默认通过{@link java.util.logging}记录.处理器本身抛出的异常被记录之后忽略.
+     */
+    public void setErrorHandler(BiConsumer<Source, Throwable> errorHandler) {
+        this.errorHandler = Objects.requireNonNull(errorHandler);
+    }
+
+    private static void logFailure(Source source, Throwable e) {
+        logger.log(Level.WARNING, "Reload source " + source + " failed, the previous configuration is kept.", e);
+    }
+
+    /**
+     * 监听source对应的文件，重复监听无影响.
+     *
+     * @param source 基于单一文件的{@link Source}或者{@link CompositeSource}
+     * @throws IllegalArgumentException 如果source不是基于本地文件的
+     */
+    public synchronized void watch(Source source) {
+        if (closed) {
+            throw new IllegalStateException("SourceWatcher is closed.");
+        }
+        if (source instanceof CompositeSource) {
+            ((CompositeSource) source).getSources().forEach(this::watch);
+            return;
+        }
+        Path file = toFile(source);
+        Path directory = file.getParent();
+        try {
+            if (watchService == null) {
+                watchService = FileSystems.getDefault().newWatchService();
+                thread = new Thread(this::run, "configurator-source-watcher");
+                thread.setDaemon(true);
+                thread.start();
+            }
+            if (!directories.containsKey(directory)) {
+                directories.put(directory, directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Watch directory " + directory + " failed.", e);
+        }
+        List<Source> sources = files.computeIfAbsent(file, key -> new ArrayList<>(1));
+        if (!sources.contains(source)) {
+            sources.add(source);
+        }
+    }
+
+    /**
+     * 取消监听，目录下没有被监听的文件时取消目录的注册.
+     */
+    public synchronized void unwatch(Source source) {
+        if (source instanceof CompositeSource) {
+            ((CompositeSource) source).getSources().forEach(this::unwatch);
+            return;
+        }
+        Path file = toFile(source);
+        List<Source> sources = files.get(file);
+        if (sources == null || !sources.remove(source) || !sources.isEmpty()) {
+            return;
+        }
+        files.remove(file);
+        Path directory = file.getParent();
+        for (Path watched : files.keySet()) {
+            if (watched.getParent().equals(directory)) {
+                return;
+            }
+        }
+        WatchKey key = directories.remove(directory);
+        if (key != null) {
+            key.cancel();
+        }
+    }
+
+    private static Path toFile(Source source) {
+        if (!(source instanceof AbstractPathBasedSource)) {
+            throw new IllegalArgumentException("Source " + source + " is not based on a file.");
+        }
+        String path = ((AbstractPathBasedSource) source).path;
+        try {
+            return Paths.get(path).toAbsolutePath().normalize();
+        } catch (InvalidPathException e) {
+            throw new IllegalArgumentException("Source " + source + " is not based on a local file.", e);
+        }
+    }
+
+    /**
+     * 监听线程: 记录每个变化的文件的重新加载时间，有待加载的文件时按最近的时间等待.
+     */
+    private void run() {
+        Map<Path, Pending> pending = new HashMap<>();
+        while (!closed) {
+            WatchKey key;
+            try {
+                if (pending.isEmpty()) {
+                    key = watchService.take();
+                } else {
+                    long wait = nextDeadline(pending) - System.nanoTime();
+                    key = (wait > 0 ? watchService.poll(wait, TimeUnit.NANOSECONDS) : watchService.poll());
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                break;
+            }
+            if (key != null) {
+                Path directory = (Path) key.watchable();
+                long deadline = System.nanoTime() + debounceNanos;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        //事件丢失，目录下所有被监听的文件都重新加载
+                        for (Path file : watchedFiles()) {
+                            if (file.getParent().equals(directory)) {
+                                pending.put(file, new Pending(file, deadline));
+                            }
+                        }
+                    } else {
+                        Path file = directory.resolve((Path) event.context());
+                        if (isWatched(file)) {
+                            pending.put(file, new Pending(file, deadline));
+                        }
+                    }
+                }
+                key.reset();
+            }
+            reloadDue(pending);
+        }
+    }
+
+    private static long nextDeadline(Map<Path, Pending> pending) {
+        Iterator<Pending> iterator = pending.values().iterator();
+        long deadline = iterator.next().deadline;
+        while (iterator.hasNext()) {
+            long next = iterator.next().deadline;
+            if (next - deadline < 0) {
+                deadline = next;
+            }
+        }
+        return deadline;
+    }
+
+    /**
+     * 重新加载到期并且稳定的文件，仍在变化的文件推迟一个去抖周期.
+     */
+    private void reloadDue(Map<Path, Pending> pending) {
+        long now = System.nanoTime();
+        for (Iterator<Map.Entry<Path, Pending>> iterator = pending.entrySet().iterator(); iterator.hasNext(); ) {
+            Map.Entry<Path, Pending> entry = iterator.next();
+            Pending due = entry.getValue();
+            if (due.deadline - now > 0) {
+                continue;
+            }
+            if (!due.observe(entry.getKey())) {
+                due.deadline = now + debounceNanos;
+                continue;
+            }
+            iterator.remove();
+            for (Source source : sourcesOf(entry.getKey())) {
+                try {
+                    source.load();
+                } catch (Exception | LinkageError e) {
+                    handleFailure(source, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 加载失败不终止监听线程，处理器本身的失败同样如此.
+     */
+    private void handleFailure(Source source, Throwable e) {
+        try {
+            errorHandler.accept(source, e);
+        } catch (Exception | LinkageError handlerFailure) {
+            if (handlerFailure != e) {
+                handlerFailure.addSuppressed(e);
+            }
+            logger.log(Level.SEVERE, "Error handler failed for source " + source + ".", handlerFailure);
+        }
+    }
+
+    private synchronized boolean isWatched(Path file) {
+        return files.containsKey(file);
+    }
+
+    private synchronized List<Path> watchedFiles() {
+        return new ArrayList<>(files.keySet());
+    }
+
+    private synchronized List<Source> sourcesOf(Path file) {
+        List<Source> sources = files.get(file);
+        return (sources == null ? Collections.emptyList() : new ArrayList<>(sources));
+    }
+
+    /**
+     * 待重新加载的文件: 到期时间以及最近一次观察到的大小、修改时间，文件不存在时都为-1.
+     */
+    private static final class Pending {
+
+        long deadline;
+        private long size;
+        private long modified;
+
+        Pending(Path file, long deadline) {
+            this.deadline = deadline;
+            observe(file);
+        }
+
+        /**
+         * 重新读取文件的大小及修改时间.
+         *
+         * @return true, 如果与上一次观察到的相同
+         */
+        boolean observe(Path file) {
+            long size, modified;
+            try {
+                size = Files.size(file);
+                modified = Files.getLastModifiedTime(file).to(TimeUnit.NANOSECONDS);
+            } catch (IOException e) {
+                size = -1;
+                modified = -1;
+            }
+            boolean stable = (size == this.size && modified == this.modified);
+            this.size = size;
+            this.modified = modified;
+            return stable;
+        }
+
+    }
+
+    /**
+     * 停止监听线程.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (SourceWatcher.class) {
+            if (defaultWatcher == this) {
+                defaultWatcher = null;
+            }
+        }
+        synchronized (this) {
+            closed = true;
+            files.clear();
+            directories.clear();
+            if (watchService != null) {
+                watchService.close();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,189 @@
+package configurator.conf;
+
+/**
+ * 字符串去重池，可选，在加载阶段由{@link TrieTree}使用: key的每一段总是去重，值及元信息只有长度不超过
+ * {@link #maxValueLength}时才去重.同一个池可以被多个{@link Source}共享，所有方法都是线程安全的.
+ * <p>池按哈希值分为{@link #segmentCount}段，每段单独加锁，并行加载时不会争用同一把锁.</p>
+ * <p>池的大小有上限: 某一段达到上限时整段清空，此后重新积累.池在重新加载之间保留，被旧配置使用过的字符串最多占用
+ * 上限个条目，不会无限增长.</p>
+ * <p>节省的字节数为估算值: 每次命中节省一个String对象及其char数组(压缩指针，8字节对齐).</p>
+ *
+ * @author skywalker
+ */
+public final class StringPool {
+
+    private static final int defaultMaxValueLength = 32;
+    private static final int defaultMaxSize = 1 << 18;
+    private static final int segmentCount = 16;
+
+    private final int maxValueLength;
+    private final Segment[] segments = new Segment[segmentCount];
+
+    public StringPool() {
+        this(defaultMaxValueLength);
+    }
+
+    /**
+     * @param maxValueLength 值去重的最大长度，更长的值通常不会重复，不值得放入池中
+     */
+    public StringPool(int maxValueLength) {
+        this(maxValueLength, defaultMaxSize);
+    }
+
+    /**
+     * @param maxValueLength 值去重的最大长度
+     * @param maxSize        池中字符串个数的上限(近似，按段平均分配)
+     */
+    public StringPool(int maxValueLength, int maxSize) {
+        if (maxValueLength < 0) {
+            throw new IllegalArgumentException("Param 'maxValueLength' can't be negative.");
+        }
+        if (maxSize < segmentCount) {
+            throw new IllegalArgumentException("Param 'maxSize' can't be less than " + segmentCount + ".");
+        }
+        this.maxValueLength = maxValueLength;
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(maxSize / segmentCount);
+        }
+    }
+
+    /**
+     * 值去重.
+     *
+     * @return 池中与value相等的字符串，value为null或者过长时原样返回
+     */
+    public String intern(String value) {
+        if (value == null || value.length() > maxValueLength) {
+            return value;
+        }
+        return intern(value, 0, value.length());
+    }
+
+    /**
+     * key的一段去重，池中已存在时不需要创建子串.
+     */
+    String intern(String source, int from, int to) {
+        int hash = 0;
+        for (int i = from; i < to; i++) {
+            hash = 31 * hash + source.charAt(i);
+        }
+        hash = spread(hash);
+        return segments[hash >>> 28].intern(source, from, to, hash);
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * String对象(24字节) + char数组(16字节头 + 2 * length，8字节对齐).
+     */
+    private static long estimateSize(int length) {
+        return 24 + ((16 + 2L * length + 7) & ~7L);
+    }
+
+    /**
+     * @return 池中不同字符串的个数
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return 命中次数，即被去重的字符串个数
+     */
+    public long getHits() {
+        long hits = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                hits += segment.hits;
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * @return 估算的节省字节数
+     */
+    public long getSavedBytes() {
+        long savedBytes = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                savedBytes += segment.savedBytes;
+            }
+        }
+        return savedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "StringPool{" +
+                "size=" + size() +
+                ", hits=" + getHits() +
+                ", savedBytes=" + getSavedBytes() +
+                '}';
+    }
+
+    /**
+     * 一段，开放地址法哈希表，长度为2的幂，负载因子不超过0.5.
+     */
+    private static final class Segment {
+
+        private final int maxSize;
+        private String[] table = new String[16];
+        private int size;
+        private long hits;
+        private long savedBytes;
+
+        private Segment(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        private synchronized String intern(String source, int from, int to, int hash) {
+            int length = to - from, mask = table.length - 1;
+            int slot = hash & mask;
+            for (String candidate; (candidate = table[slot]) != null; slot = (slot + 1) & mask) {
+                if (candidate.length() == length && source.regionMatches(from, candidate, 0, length)) {
+                    hits++;
+                    savedBytes += estimateSize(length);
+                    return candidate;
+                }
+            }
+            String result = (from == 0 && to == source.length() ? source : source.substring(from, to));
+            if (size >= maxSize) {
+                //达到上限，整段清空
+                table = new String[16];
+                size = 0;
+                slot = hash & (table.length - 1);
+            }
+            table[slot] = result;
+            if (++size * 2 > table.length) {
+                rehash();
+            }
+            return result;
+        }
+
+        private void rehash() {
+            String[] old = table;
+            table = new String[old.length * 2];
+            int mask = table.length - 1;
+            for (String value : old) {
+                if (value != null) {
+                    int slot = spread(value.hashCode()) & mask;
+                    while (table[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    table[slot] = value;
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,77 @@
+package configurator.conf;
+
+/**
+ * {@link AbstractTreeBasedSource}的{@link ConfigKey}: 记住key在当前{@link TrieTree}中的叶子节点下标，
+ * 读取时只需比较树是否被重新加载替换，替换之后在新树中重新定位一次.
+ *
+ * @author skywalker
+ */
+final class TreeConfigKey<T> extends ConfigKey<T> {
+
+    private final AbstractTreeBasedSource treeSource;
+    /**
+     * 树与下标成对替换.
+     */
+    private volatile Binding binding;
+
+    TreeConfigKey(AbstractTreeBasedSource source, String name, Class<T> type) {
+        super(source, name, type);
+        this.treeSource = source;
+    }
+
+    /**
+     * @return 当前树中的绑定，下标为-1表示不存在或者树尚未冻结
+     */
+    private Binding bind() {
+        TrieTree tree = treeSource.holder;
+        Binding binding = this.binding;
+        if (binding == null || binding.tree != tree) {
+            binding = new Binding(tree, tree.leafIndex(name));
+            this.binding = binding;
+        }
+        return binding;
+    }
+
+    @Override
+    public String getString() {
+        Binding binding = bind();
+        return (binding.index < 0 ? super.getString() : binding.tree.valueAt(binding.index));
+    }
+
+    @Override
+    public int getInt() {
+        Binding binding = bind();
+        return (binding.index < 0 ? super.getInt() : binding.tree.intAt(binding.index));
+    }
+
+    @Override
+    public long getLong() {
+        Binding binding = bind();
+        return (binding.index < 0 ? super.getLong() : binding.tree.longAt(binding.index));
+    }
+
+    @Override
+    public double getDouble() {
+        Binding binding = bind();
+        return (binding.index < 0 ? super.getDouble() : binding.tree.doubleAt(binding.index));
+    }
+
+    @Override
+    public boolean getBoolean() {
+        Binding binding = bind();
+        return (binding.index < 0 ? super.getBoolean() : binding.tree.booleanAt(binding.index));
+    }
+
+    private static final class Binding {
+
+        final TrieTree tree;
+        final int index;
+
+        Binding(TrieTree tree, int index) {
+            this.tree = tree;
+            this.index = index;
+        }
+
+    }
+
+}
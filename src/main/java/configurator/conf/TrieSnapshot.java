@@ -0,0 +1,338 @@
+package configurator.conf;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * {@link FrozenTrie}的二进制快照，用于跳过XML/JSON解析的冷启动.格式(大端):
+ * <pre>
+ * magic, formatVersion, kind(长度 + UTF-8)
+ * sourceSize, sourceModified, sourceCrc        源文件标识
+ * nodeCount, metaNodeCount, metaCount, stringCount, blobLength
+ * offsets[stringCount + 1], blob[blobLength]   字符串表: 去重之后的UTF-8，第i个字符串为blob[offsets[i], offsets[i + 1])
+ * segments[n], parents[n], ends[n], values[n]  字符串以其在字符串表中的下标表示，null为-1
+ * metaNodes[m], metaOffsets[m + 1], metaKeys[k], metaValues[k]
+ * typeCount, types[typeCount]                  节点的类型标记，没有时typeCount为0，否则为n
+ * checksum                                     之前所有字节的CRC32
+ * </pre>
+ * <p>读取时整个文件被映射到内存，数组批量读出，字符串表中的每个字符串只解码一次.源文件的大小及修改时间与快照中的一致时
+ * 直接使用快照；只有修改时间不同时再比较内容的CRC32，内容未变时仍然使用快照.</p>
+ * <p>快照可能被截断或者损坏: 校验和不一致、任何长度超出剩余的字节数或者节点结构不合法时都视为快照不存在，分配数组之前
+ * 总是先检查长度.</p>
+ *
+ * @author skywalker
+ */
+final class TrieSnapshot {
+
+    private static final int magic = 0x43464753;
+    private static final int formatVersion = 3;
+    /**
+     * 末尾的校验和.
+     */
+    private static final int checksumLength = 8;
+
+    private TrieSnapshot() {
+    }
+
+    /**
+     * 源文件标识，CRC32在第一次需要时计算.
+     */
+    static final class Stamp {
+
+        private final Path file;
+        final long size;
+        final long modified;
+        private long crc = -1;
+
+        private Stamp(Path file, long size, long modified) {
+            this.file = file;
+            this.size = size;
+            this.modified = modified;
+        }
+
+        static Stamp of(Path file) throws IOException {
+            return new Stamp(file, Files.size(file), Files.getLastModifiedTime(file).to(TimeUnit.MICROSECONDS));
+        }
+
+        long crc() throws IOException {
+            if (crc < 0) {
+                CRC32 crc32 = new CRC32();
+                ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    while (channel.read(buffer) >= 0) {
+                        buffer.flip();
+                        crc32.update(buffer);
+                        buffer.clear();
+                    }
+                }
+                crc = crc32.getValue();
+            }
+            return crc;
+        }
+
+    }
+
+    /**
+     * @param kind 生成快照的{@link Source}类型，不同类型的快照不能混用
+     * @return 快照不存在、已过期或者已损坏时返回null
+     */
+    static FrozenTrie read(Path snapshot, Stamp stamp, String kind) {
+        if (!Files.isRegularFile(snapshot)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < checksumLength || length > Integer.MAX_VALUE) {
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            long checksum = buffer.getLong((int) length - checksumLength);
+            buffer.limit((int) length - checksumLength);
+            if (buffer.getInt() != magic || buffer.getInt() != formatVersion || !kind.equals(readString(buffer))) {
+                return null;
+            }
+            long size = buffer.getLong(), modified = buffer.getLong(), crc = buffer.getLong();
+            if (size != stamp.size || (modified != stamp.modified && crc != stamp.crc())) {
+                return null;
+            }
+            if (!checksumMatches(buffer, checksum)) {
+                return null;
+            }
+            int nodeCount = checkLength(buffer, buffer.getInt(), 4 * 4);
+            int metaNodeCount = checkLength(buffer, buffer.getInt(), 4 * 2);
+            int metaCount = checkLength(buffer, buffer.getInt(), 4 * 2);
+            String[] strings = readStrings(buffer, buffer.getInt(), buffer.getInt());
+            String[] segments = resolve(strings, readInts(buffer, nodeCount));
+            int[] parents = readInts(buffer, nodeCount);
+            int[] ends = readInts(buffer, nodeCount);
+            String[] values = resolve(strings, readInts(buffer, nodeCount));
+            int[] metaNodes = readInts(buffer, metaNodeCount);
+            int[] metaOffsets = readInts(buffer, metaNodeCount + 1);
+            String[] metaKeys = resolve(strings, readInts(buffer, metaCount));
+            String[] metaValues = resolve(strings, readInts(buffer, metaCount));
+            byte[] types = readTypes(buffer, nodeCount);
+            if (buffer.hasRemaining() || !isWellFormed(parents, ends, metaNodes, metaOffsets, metaCount)) {
+                return null;
+            }
+            return new FrozenTrie(segments, parents, ends, values, metaNodes, metaOffsets, metaKeys, metaValues,
+                    types);
+        } catch (IOException | RuntimeException | OutOfMemoryError e) {
+            return null;
+        }
+    }
+
+    /**
+     * 校验和覆盖limit之前的所有字节，不改变buffer的position.
+     */
+    private static boolean checksumMatches(ByteBuffer buffer, long checksum) {
+        ByteBuffer content = buffer.duplicate();
+        content.position(0);
+        CRC32 crc32 = new CRC32();
+        crc32.update(content);
+        return (crc32.getValue() == checksum);
+    }
+
+    /**
+     * 长度来自文件本身，分配数组之前先与剩余的字节数比较.
+     *
+     * @param unit 每个元素至少占用的字节数
+     * @return count
+     * @throws IllegalStateException 如果count为负数或者超出剩余的字节数
+     */
+    private static int checkLength(ByteBuffer buffer, int count, int unit) {
+        if (count < 0 || (long) count * unit > buffer.remaining()) {
+            throw new IllegalStateException("Corrupted snapshot, length " + count + " out of bounds.");
+        }
+        return count;
+    }
+
+    /**
+     * 父节点总在子节点之前，子树区间不越界，元信息的节点升序且区间连续，否则{@link FrozenTrie}的构造可能不会结束.
+     */
+    private static boolean isWellFormed(int[] parents, int[] ends, int[] metaNodes, int[] metaOffsets,
+                                        int metaCount) {
+        int n = parents.length;
+        for (int i = 0; i < n; i++) {
+            if (parents[i] < -1 || parents[i] >= i || ends[i] <= i || ends[i] > n) {
+                return false;
+            }
+        }
+        if (metaOffsets[0] != 0 || metaOffsets[metaNodes.length] != metaCount) {
+            return false;
+        }
+        for (int j = 0; j < metaNodes.length; j++) {
+            if (metaNodes[j] < 0 || metaNodes[j] >= n || (j > 0 && metaNodes[j] <= metaNodes[j - 1])
+                    || metaOffsets[j + 1] < metaOffsets[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[checkLength(buffer, buffer.getInt(), 1)];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String[] readStrings(ByteBuffer buffer, int count, int blobLength) {
+        checkLength(buffer, count, 4);
+        int[] offsets = readInts(buffer, count + 1);
+        byte[] blob = new byte[checkLength(buffer, blobLength, 1)];
+        buffer.get(blob);
+        String[] strings = new String[count];
+        for (int i = 0; i < count; i++) {
+            strings[i] = new String(blob, offsets[i], offsets[i + 1] - offsets[i], StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int count) {
+        int[] result = new int[checkLength(buffer, count, 4)];
+        buffer.asIntBuffer().get(result);
+        buffer.position(buffer.position() + count * 4);
+        return result;
+    }
+
+    /**
+     * @return 没有类型标记时返回null
+     * @throws IllegalStateException 如果类型标记的个数既不是0也不是nodeCount
+     */
+    private static byte[] readTypes(ByteBuffer buffer, int nodeCount) {
+        int count = checkLength(buffer, buffer.getInt(), 1);
+        if (count == 0) {
+            return null;
+        }
+        if (count != nodeCount) {
+            throw new IllegalStateException("Corrupted snapshot, " + count + " types for " + nodeCount + " nodes.");
+        }
+        byte[] types = new byte[count];
+        buffer.get(types);
+        return types;
+    }
+
+    private static String[] resolve(String[] strings, int[] ids) {
+        String[] result = new String[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            result[i] = (ids[i] < 0 ? null : strings[ids[i]]);
+        }
+        return result;
+    }
+
+    /**
+     * 先写入临时文件再原子替换，读取方不会看到写了一半的快照.
+     */
+    static void write(Path snapshot, Stamp stamp, String kind, FrozenTrie trie) throws IOException {
+        StringTable table = new StringTable();
+        int[] segments = table.ids(trie.segments), values = table.ids(trie.values);
+        int[] metaKeys = table.ids(trie.metaKeys), metaValues = table.ids(trie.metaValues);
+        Path parent = snapshot.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, snapshot.getFileName().toString(), ".tmp");
+        try {
+            CheckedOutputStream checked = new CheckedOutputStream(Files.newOutputStream(temp), new CRC32());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(checked, 1 << 16))) {
+                out.writeInt(magic);
+                out.writeInt(formatVersion);
+                byte[] kindBytes = kind.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(kindBytes.length);
+                out.write(kindBytes);
+                out.writeLong(stamp.size);
+                out.writeLong(stamp.modified);
+                out.writeLong(stamp.crc());
+                out.writeInt(trie.size());
+                out.writeInt(trie.metaNodes.length);
+                out.writeInt(trie.metaKeys.length);
+                out.writeInt(table.count);
+                out.writeInt(table.blob.size());
+                writeInts(out, table.offsets());
+                table.blob.writeTo(out);
+                writeInts(out, segments);
+                writeInts(out, trie.parents);
+                writeInts(out, trie.ends);
+                writeInts(out, values);
+                writeInts(out, trie.metaNodes);
+                writeInts(out, trie.metaOffsets);
+                writeInts(out, metaKeys);
+                writeInts(out, metaValues);
+                if (trie.types == null) {
+                    out.writeInt(0);
+                } else {
+                    out.writeInt(trie.types.length);
+                    out.write(trie.types);
+                }
+                out.flush();
+                out.writeLong(checked.getChecksum().getValue());
+            }
+            try {
+                Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    /**
+     * 写入时的字符串表，相同的字符串只保存一次.
+     */
+    private static final class StringTable {
+
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final ByteArrayOutputStream blob = new ByteArrayOutputStream(1 << 16);
+        private int[] offsets = new int[64];
+        private int count;
+
+        private int[] ids(String[] strings) {
+            int[] result = new int[strings.length];
+            for (int i = 0; i < strings.length; i++) {
+                result[i] = (strings[i] == null ? -1 : idOf(strings[i]));
+            }
+            return result;
+        }
+
+        private int idOf(String value) {
+            Integer id = ids.get(value);
+            if (id == null) {
+                id = count++;
+                ids.put(value, id);
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                blob.write(bytes, 0, bytes.length);
+                if (count == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                }
+                offsets[count] = blob.size();
+            }
+            return id;
+        }
+
+        /**
+         * @return count + 1个偏移
+         */
+        private int[] offsets() {
+            return Arrays.copyOf(offsets, count + 1);
+        }
+
+    }
+
+}
@@ -1,20 +1,44 @@
 package configurator.conf;
 
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.*;
+import java.util.function.BiConsumer;
 
 /**
  * 配置存放载体.
+ * <p>加载阶段以节点树的形式存放，加载完成之后可以通过{@link #freeze()}压缩为只读的{@link FrozenTrie}，此后不能再添加.</p>
  *
  * @author skywalker
  */
 public final class TrieTree {
 
-    private final Node head = new Node("HEAD");
+    /**
+     * 冻结之后置为null，释放节点树.
+     */
+    private Node head = new Node("HEAD");
+    private volatile FrozenTrie frozen;
+    /**
+     * 加载阶段使用的字符串去重池，可以为null.
+     */
+    private StringPool stringPool;
+    /**
+     * 由{@link AbstractTreeBasedSource}在发布之前设置，未加载的树为0.
+     */
+    long version;
+
+    public TrieTree() {
+    }
+
+    /**
+     * 直接以已经冻结的形式创建.
+     */
+    TrieTree(FrozenTrie frozen) {
+        this.head = null;
+        this.frozen = frozen;
+    }
 
     //多值分隔符
     private static final String multiSeparator = ",";
-    private static final String separator = "\\.";
+    private static final char separator = '.';
 
     /**
      * 添加一个键值对.
@@ -49,24 +73,31 @@ public final class TrieTree {
      * @param metaDataValues 元信息值数组
      */
     public void add(String key, String value, String[] metaDataKeys, String[] metaDataValues) {
+        if (frozen != null) {
+            throw new IllegalStateException("TrieTree is frozen.");
+        }
         checkKey(key);
-        String[] parts = key.split(separator);
+        int end = segmentsEnd(key);
+        if (end == 0) {
+            throw new IllegalArgumentException("Given key '" + key + "' has no segments.");
+        }
         Node parent = head, node = null;
-        for (int i = 0, l = parts.length; i < l; i++) {
-            String part = parts[i];
-            node = findChild(parent, part);
+        for (int from = 0; from <= end; ) {
+            int to = nextSeparator(key, from, end);
+            node = parent.getChild(key, from, to);
             if (node == null) {
                 node = new Node();
-                parent.children.put(part, node);
+                parent.addChild(stringPool == null ? key.substring(from, to) : stringPool.intern(key, from, to), node);
             }
             parent = node;
+            from = to + 1;
         }
         if (value != null) {
             //设置value
             if (node.value != null) {
                 node.value += (multiSeparator + value);
             } else {
-                node.value = value;
+                node.value = (stringPool == null ? value : stringPool.intern(value));
             }
         }
         //设置元信息
@@ -74,7 +105,11 @@ public final class TrieTree {
             for (int i = 0, l = metaDataKeys.length; i < l; i++) {
                 String metaDataKey = metaDataKeys[i];
                 checkKey(metaDataKey);
-                node.metaData.put(metaDataKey, metaDataValues[i]);
+                if (stringPool == null) {
+                    node.putMetaData(metaDataKey, metaDataValues[i]);
+                } else {
+                    node.putMetaData(stringPool.intern(metaDataKey), stringPool.intern(metaDataValues[i]));
+                }
             }
         }
     }
@@ -86,6 +121,17 @@ public final class TrieTree {
      */
     public String get(String key) {
         checkKey(key);
+        FrozenTrie frozen = this.frozen;
+        if (frozen != null) {
+            int index = frozen.indexOf(key);
+            if (index < 0) {
+                return null;
+            }
+            if (!frozen.isLeaf(index)) {
+                throw new IllegalStateException("Get() method supports leaf node only, key '" + key + "'.");
+            }
+            return frozen.values[index];
+        }
         Node node = seekTo(key);
         if (node == null) {
             return null;
@@ -96,16 +142,110 @@ public final class TrieTree {
         return node.value;
     }
 
+    /**
+     * 取出键为key的值的int形式.冻结之后解析结果被缓存，重复读取只需一次查找.
+     *
+     * @throws NumberFormatException 与{@link Integer#parseInt(String)}相同
+     */
+    public int getInt(String key) {
+        int index = leafIndex(key);
+        return (index < 0 ? Integer.parseInt(get(key)) : intAt(index));
+    }
+
+    /**
+     * 取出键为key的值的long形式，冻结之后解析结果被缓存.
+     *
+     * @throws NumberFormatException 与{@link Long#parseLong(String)}相同
+     */
+    public long getLong(String key) {
+        int index = leafIndex(key);
+        return (index < 0 ? Long.parseLong(get(key)) : longAt(index));
+    }
+
+    /**
+     * 取出键为key的值的double形式，冻结之后解析结果被缓存.
+     */
+    public double getDouble(String key) {
+        int index = leafIndex(key);
+        return (index < 0 ? Double.parseDouble(get(key)) : doubleAt(index));
+    }
+
+    /**
+     * 取出键为key的值的boolean形式，冻结之后解析结果被缓存.
+     */
+    public boolean getBoolean(String key) {
+        int index = leafIndex(key);
+        return (index < 0 ? Boolean.parseBoolean(get(key)) : booleanAt(index));
+    }
+
+    /**
+     * @return key对应的叶子节点在冻结形式中的下标，未冻结或者不存在时返回-1
+     * @throws IllegalStateException 如果key对应非叶子节点
+     */
+    int leafIndex(String key) {
+        FrozenTrie frozen = this.frozen;
+        if (frozen == null) {
+            return -1;
+        }
+        checkKey(key);
+        int index = frozen.indexOf(key);
+        if (index >= 0 && !frozen.isLeaf(index)) {
+            throw new IllegalStateException("Get() method supports leaf node only, key '" + key + "'.");
+        }
+        return index;
+    }
+
+    /**
+     * @return 冻结的形式，未冻结时返回null
+     */
+    FrozenTrie frozen() {
+        return frozen;
+    }
+
+    /**
+     * 以下xxxAt方法的index来自{@link #leafIndex(String)}.
+     */
+    String valueAt(int index) {
+        return frozen.values[index];
+    }
+
+    int intAt(int index) {
+        FrozenTrie frozen = this.frozen;
+        long value = frozen.getLong(index);
+        if ((int) value != value) {
+            //超出int范围，抛出与parseInt相同的异常
+            return Integer.parseInt(frozen.values[index]);
+        }
+        return (int) value;
+    }
+
+    long longAt(int index) {
+        return frozen.getLong(index);
+    }
+
+    double doubleAt(int index) {
+        return frozen.getDouble(index);
+    }
+
+    boolean booleanAt(int index) {
+        return frozen.getBoolean(index);
+    }
+
     /**
      * 获取元信息.
      */
     public String getMetaData(String key, String metaDataKey) {
         checkKey(key);
         checkKey(metaDataKey);
+        FrozenTrie frozen = this.frozen;
+        if (frozen != null) {
+            int index = frozen.indexOf(key);
+            return (index < 0 ? null : frozen.getMetaData(index, metaDataKey));
+        }
         Node node = seekTo(key);
         String result = null;
         if (node != null) {
-            result = node.metaData.get(metaDataKey);
+            result = node.getMetaData(metaDataKey);
         }
         return result;
     }
@@ -114,38 +254,114 @@ public final class TrieTree {
      * 前缀搜索.
      */
     public Map<String, String> find(String prefix) {
-        Node node = seekTo(prefix);
         Map<String, String> result = new LinkedHashMap<>(0);
+        forEach(prefix, result::put);
+        return result;
+    }
+
+    /**
+     * 依次访问前缀搜索的结果，与{@link #find(String)}的顺序相同，不创建中间的{@link Map}，key在同一个缓冲区中拼接.
+     */
+    public void forEach(String prefix, BiConsumer<String, String> consumer) {
+        FrozenTrie frozen = this.frozen;
+        if (frozen != null) {
+            frozen.forEach(prefix, consumer);
+            return;
+        }
+        Node node = seekTo(prefix);
         if (node != null) {
-            if (node != head) {
-                prefix += ".";
+            StringBuilder key = new StringBuilder(64).append(prefix, 0, segmentsEnd(prefix));
+            visit(key, node, consumer);
+        }
+    }
+
+    /**
+     * 将节点树压缩为只读的{@link FrozenTrie}，此后{@link #get(String)}只需一次哈希探测，{@link #add}将抛出
+     * {@link IllegalStateException}.重复调用无影响.
+     */
+    public void freeze() {
+        if (frozen != null) {
+            return;
+        }
+        List<String> segments = new ArrayList<>();
+        List<Node> nodes = new ArrayList<>();
+        IntList parents = new IntList(), ends = new IntList(), metaNodes = new IntList(), metaOffsets = new IntList();
+        List<String> metaKeys = new ArrayList<>(), metaValues = new ArrayList<>();
+        flatten(head, -1, segments, nodes, parents, ends);
+        String[] values = new String[nodes.size()];
+        for (int i = 0, l = nodes.size(); i < l; i++) {
+            Node node = nodes.get(i);
+            values[i] = node.value;
+            if (hasMeta(node)) {
+                metaNodes.add(i);
+                metaOffsets.add(metaKeys.size());
+                String[] metaData = node.metaData;
+                for (int j = 0, l2 = node.metaDataSize * 2; j < l2; j += 2) {
+                    metaKeys.add(metaData[j]);
+                    metaValues.add(metaData[j + 1]);
+                }
             }
-            collectAsMap(prefix, node, result);
         }
-        return result;
+        metaOffsets.add(metaKeys.size());
+        frozen = new FrozenTrie(segments.toArray(new String[segments.size()]), parents.toArray(), ends.toArray(),
+                values, metaNodes.toArray(), metaOffsets.toArray(), metaKeys.toArray(new String[metaKeys.size()]),
+                metaValues.toArray(new String[metaValues.size()]), null);
+        head = null;
+        stringPool = null;
+    }
+
+    /**
+     * 以先序遍历node的子节点.
+     */
+    private void flatten(Node node, int parent, List<String> segments, List<Node> nodes, IntList parents,
+                         IntList ends) {
+        ChildMap children = node.children;
+        for (int i = 0, l = node.childCount(); i < l; i++) {
+            int index = nodes.size();
+            segments.add(children.keys[i]);
+            nodes.add(children.nodes[i]);
+            parents.add(parent);
+            ends.add(0);
+            flatten(children.nodes[i], index, segments, nodes, parents, ends);
+            ends.set(index, nodes.size());
+        }
+    }
+
+    /**
+     * 设置加载阶段使用的字符串去重池，只影响此后添加的key及值.
+     */
+    public void setStringPool(StringPool stringPool) {
+        this.stringPool = stringPool;
+    }
+
+    public boolean isFrozen() {
+        return (frozen != null);
     }
 
     /**
-     * 结果收集.
+     * 结果收集，key为node的完整key，返回前恢复其长度.
      */
-    private void collectAsMap(String prefix, Node node, Map<String, String> result) {
-        if (isLeaf(node)) {
-            String key = prefix.substring(0, prefix.length() - 1);
+    private void visit(StringBuilder key, Node node, BiConsumer<String, String> consumer) {
+        //空树的head没有子节点，但不是叶子
+        if (node != head && isLeaf(node)) {
             String value = node.value;
             if (hasMeta(node)) {
-                value += node.metaData.toString();
+                value += node.metaDataToString();
             }
-            result.put(key, value);
+            consumer.accept(key.toString(), value);
         } else {
             if (node != head && hasMeta(node)) {
-                String key = prefix.substring(0, prefix.length() - 1);
-                String value = node.metaData.toString();
-                result.put(key, value);
+                consumer.accept(key.toString(), node.metaDataToString());
+            }
+            ChildMap children = node.children;
+            int length = key.length();
+            for (int i = 0, l = node.childCount(); i < l; i++) {
+                if (node != head) {
+                    key.append(separator);
+                }
+                visit(key.append(children.keys[i]), children.nodes[i], consumer);
+                key.setLength(length);
             }
-            node.children.forEach((key, value) -> {
-                String newPrefix = (prefix + key + ".");
-                collectAsMap(newPrefix, value, result);
-            });
         }
     }
 
@@ -153,41 +369,63 @@ public final class TrieTree {
      * 判断给定的{@link Node}是否有元信息.
      */
     private boolean hasMeta(Node node) {
-        return (node.metaData.size() > 0);
+        return (node.metaDataSize > 0);
     }
 
     /**
-     * 向下对key逐部分进行匹配.
+     * 向下对key逐部分进行匹配，直接在key上按下标扫描，不创建子串.
      */
     private Node seekTo(String key) {
         Node node = head;
-        if (!key.equals("")) {
-            String[] parts = key.split(separator);
-            for (String part : parts) {
-                node = findChild(node, part);
-                if (node == null) {
-                    return null;
-                }
+        int end = segmentsEnd(key);
+        for (int from = 0; from <= end && end > 0; ) {
+            int to = nextSeparator(key, from, end);
+            node = node.getChild(key, from, to);
+            if (node == null) {
+                return null;
             }
+            from = to + 1;
         }
         return node;
     }
 
     /**
-     * 检查给定的key是否为null,如果是，抛出{@link IllegalArgumentException}.
+     * 与String.split相同，忽略末尾的空段.
+     *
+     * @return 最后一个非分隔符字符的下标 + 1, 0表示没有任何段
+     */
+    private static int segmentsEnd(String key) {
+        int end = key.length();
+        while (end > 0 && key.charAt(end - 1) == separator) {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * @return [from, end)中第一个分隔符的下标，没有时返回end
      */
-    private void checkKey(String key) {
-        if (key == null || key.trim().equals("")) {
-            throw new IllegalArgumentException("Given key can't be null or empty.");
+    private static int nextSeparator(String key, int from, int end) {
+        for (int i = from; i < end; i++) {
+            if (key.charAt(i) == separator) {
+                return i;
+            }
         }
+        return end;
     }
 
     /**
-     * 寻找相匹配的子节点.
+     * 检查给定的key是否为null或空白,如果是，抛出{@link IllegalArgumentException}.
      */
-    private Node findChild(Node node, String part) {
-        Map<String, Node> children = node.children;
-        return children.get(part);
+    private void checkKey(String key) {
+        if (key != null) {
+            for (int i = 0, l = key.length(); i < l; i++) {
+                if (key.charAt(i) > ' ') {
+                    return;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Given key can't be null or empty.");
     }
 
     /**
@@ -196,7 +434,7 @@ public final class TrieTree {
      * @param node {@link Node}
      */
     private boolean isLeaf(Node node) {
-        return (node.children.size() == 0);
+        return (node.childCount() == 0);
     }
 
     public String getMultiSeparator() {
@@ -204,16 +442,17 @@ public final class TrieTree {
     }
 
     /**
-     * 节点.
+     * 节点.子节点表及元信息在第一次使用时才创建，大量的叶子节点两者皆无.
      */
-    private class Node {
+    private static final class Node {
 
         String value;
 
-        //子节点
-        final Map<String, Node> children = new LinkedHashMap<>(10);
-        //元信息
-        final Map<String, String> metaData = new LinkedHashMap<>();
+        //子节点，没有时为null
+        ChildMap children;
+        //元信息，键值交替存放，没有时为null
+        String[] metaData;
+        int metaDataSize;
 
         Node(String value) {
             this.value = value;
@@ -222,6 +461,176 @@ public final class TrieTree {
         Node() {
         }
 
+        Node getChild(String key, int from, int to) {
+            return (children == null ? null : children.get(key, from, to));
+        }
+
+        void addChild(String segment, Node child) {
+            if (children == null) {
+                children = new ChildMap();
+            }
+            children.put(segment, child);
+        }
+
+        int childCount() {
+            return (children == null ? 0 : children.size);
+        }
+
+        String getMetaData(String key) {
+            for (int i = 0, l = metaDataSize * 2; i < l; i += 2) {
+                if (metaData[i].equals(key)) {
+                    return metaData[i + 1];
+                }
+            }
+            return null;
+        }
+
+        /**
+         * 与{@link Map#put}相同，已存在的元信息被覆盖，保持第一次插入的顺序.
+         */
+        void putMetaData(String key, String value) {
+            for (int i = 0, l = metaDataSize * 2; i < l; i += 2) {
+                if (metaData[i].equals(key)) {
+                    metaData[i + 1] = value;
+                    return;
+                }
+            }
+            if (metaData == null) {
+                metaData = new String[2];
+            } else if (metaData.length == metaDataSize * 2) {
+                metaData = Arrays.copyOf(metaData, metaData.length * 2);
+            }
+            metaData[metaDataSize * 2] = key;
+            metaData[metaDataSize * 2 + 1] = value;
+            metaDataSize++;
+        }
+
+        /**
+         * 与{@link LinkedHashMap#toString()}的格式相同.
+         */
+        String metaDataToString() {
+            StringBuilder sb = new StringBuilder("{");
+            for (int i = 0, l = metaDataSize * 2; i < l; i += 2) {
+                if (i > 0) {
+                    sb.append(", ");
+                }
+                sb.append(metaData[i]).append('=').append(metaData[i + 1]);
+            }
+            return sb.append('}').toString();
+        }
+
+    }
+
+    /**
+     * 子节点表: 保持插入顺序的数组，子节点不超过{@link #linearThreshold}时线性查找，超过之后额外建立开放地址法的哈希索引.
+     * 两种方式都可以直接以key的一段[from, to)查找，不需要创建子串，哈希值与{@link String#hashCode()}相同.
+     */
+    private static final class ChildMap {
+
+        private static final int initialCapacity = 2;
+        private static final int linearThreshold = 8;
+
+        String[] keys = new String[initialCapacity];
+        Node[] nodes = new Node[initialCapacity];
+        int size;
+        /**
+         * 哈希槽，保存keys中的下标 + 1, 0表示空槽，长度为2的幂且至少为keys长度的2倍，子节点较少时为null.
+         */
+        private int[] table;
+
+        Node get(String key, int from, int to) {
+            int length = to - from;
+            if (table == null) {
+                for (int i = 0; i < size; i++) {
+                    String candidate = keys[i];
+                    if (candidate.length() == length && key.regionMatches(from, candidate, 0, length)) {
+                        return nodes[i];
+                    }
+                }
+                return null;
+            }
+            int hash = 0;
+            for (int i = from; i < to; i++) {
+                hash = 31 * hash + key.charAt(i);
+            }
+            int mask = table.length - 1;
+            for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+                int index = table[slot];
+                if (index == 0) {
+                    return null;
+                }
+                String candidate = keys[index - 1];
+                if (candidate.length() == length && key.regionMatches(from, candidate, 0, length)) {
+                    return nodes[index - 1];
+                }
+            }
+        }
+
+        /**
+         * 调用者保证key不存在.
+         */
+        void put(String key, Node node) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                nodes = Arrays.copyOf(nodes, size * 2);
+                if (table != null) {
+                    rehash();
+                }
+            }
+            keys[size] = key;
+            nodes[size] = node;
+            size++;
+            if (table != null) {
+                insert(key.hashCode(), size - 1);
+            } else if (size > linearThreshold) {
+                rehash();
+            }
+        }
+
+        private void rehash() {
+            table = new int[keys.length * 2];
+            for (int i = 0; i < size; i++) {
+                insert(keys[i].hashCode(), i);
+            }
+        }
+
+        private void insert(int hash, int index) {
+            int mask = table.length - 1, slot = spread(hash) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = index + 1;
+        }
+
+        private static int spread(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+
+    }
+
+    /**
+     * int的可变长数组.
+     */
+    private static final class IntList {
+
+        private int[] elements = new int[16];
+        private int size;
+
+        void add(int element) {
+            if (size == elements.length) {
+                elements = Arrays.copyOf(elements, size * 2);
+            }
+            elements[size++] = element;
+        }
+
+        void set(int index, int element) {
+            elements[index] = element;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(elements, size);
+        }
+
     }
 
 }
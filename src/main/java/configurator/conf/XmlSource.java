@@ -5,49 +5,207 @@ import org.w3c.dom.*;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.stream.StreamSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * XML配置来源.
+ * <p>有两种加载模式，得到的key及元信息(key#attr)完全相同:</p>
+ * <ul>
+ * <li>DOM(默认): 先解析出完整的文档树，再递归写入{@link TrieTree}.</li>
+ * <li>流式: 基于StAX({@link XMLStreamReader})一遍读取，使用显式的栈代替递归，内存峰值接近最终的{@link TrieTree}，
+ * 适合非常大的配置文件.</li>
+ * </ul>
  *
  * @author skywalker
  */
 public class XmlSource extends AbstractTreeBasedSource {
 
     /** 属性key分隔符 **/
-    private static final String metadataSeparator = "#";
+    private static final char metadataSeparator = '#';
+
+    private final boolean streaming;
 
     public XmlSource(String path) {
+        this(path, false);
+    }
+
+    /**
+     * @param streaming 是否使用流式(StAX)加载
+     */
+    public XmlSource(String path, boolean streaming) {
         super(path);
+        this.streaming = streaming;
     }
 
     /**
      * 解析指定的配置文件.
      */
     @Override
-    public void load() throws LoadException {
+    protected void doLoad(TrieTree tree) throws LoadException {
+        if (streaming) {
+            loadStreaming(tree);
+            return;
+        }
         try {
             DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
             DocumentBuilder builder = factory.newDocumentBuilder();
             Document document = builder.parse(path);
             Element root = document.getDocumentElement();
-            resolve(root);
+            resolve(root, tree);
         } catch (Exception e) {
             throw new LoadException(e);
         }
     }
 
+    /**
+     * 流式加载，与DOM模式的语义保持一致:
+     * <ul>
+     * <li>根节点的名称作为key的第一段，根节点自身的属性及文本被忽略.</li>
+     * <li>叶子节点(没有子元素)的值为其文本去除首尾空白，属性作为元信息.</li>
+     * <li>非叶子节点只保存属性，并且在其所有子节点之后保存.</li>
+     * <li>属性按名称排序，与DOM的NamedNodeMap一致.</li>
+     * </ul>
+     */
+    private void loadStreaming(TrieTree tree) throws LoadException {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        //内部实体在解析时替换，与DOM一致
+        factory.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, true);
+        XMLStreamReader reader = null;
+        try {
+            reader = factory.createXMLStreamReader(new StreamSource(path));
+            List<Frame> stack = new ArrayList<>();
+            StringBuilder text = new StringBuilder();
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        String name = qualifiedName(reader);
+                        Frame parent = (stack.isEmpty() ? null : stack.get(stack.size() - 1));
+                        Frame frame;
+                        if (parent == null) {
+                            frame = new Frame(name, null, null);
+                        } else {
+                            parent.leaf = false;
+                            frame = newFrame(parent.key + "." + name, reader);
+                        }
+                        stack.add(frame);
+                        text.setLength(0);
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                    case XMLStreamConstants.SPACE:
+                        text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                        break;
+                    case XMLStreamConstants.ENTITY_REFERENCE:
+                        //不支持替换的实现仍会报告实体引用，getTextCharacters对其无效
+                        text.append(reader.getText());
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        Frame finished = stack.remove(stack.size() - 1);
+                        if (!stack.isEmpty()) {
+                            save(finished, text, tree);
+                        }
+                        text.setLength(0);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new LoadException(e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    //ignore
+                }
+            }
+        }
+    }
+
+    private Frame newFrame(String key, XMLStreamReader reader) {
+        int count = reader.getAttributeCount();
+        if (count == 0) {
+            return new Frame(key, null, null);
+        }
+        String[][] attributes = new String[count][];
+        for (int i = 0; i < count; i++) {
+            String prefix = reader.getAttributePrefix(i), localName = reader.getAttributeLocalName(i);
+            String name = (prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName);
+            attributes[i] = new String[]{name, reader.getAttributeValue(i)};
+        }
+        Arrays.sort(attributes, (o1, o2) -> o1[0].compareTo(o2[0]));
+        String[] metaDataKeys = new String[count], metaDataValues = new String[count];
+        for (int i = 0; i < count; i++) {
+            metaDataKeys[i] = attributes[i][0];
+            metaDataValues[i] = attributes[i][1];
+        }
+        return new Frame(key, metaDataKeys, metaDataValues);
+    }
+
+    /**
+     * 保存已结束的元素，叶子节点的文本在text中.
+     */
+    private void save(Frame frame, StringBuilder text, TrieTree tree) {
+        if (frame.leaf) {
+            String value = text.toString().trim();
+            if (frame.metaDataKeys != null) {
+                tree.add(frame.key, value, frame.metaDataKeys, frame.metaDataValues);
+            } else {
+                tree.addValue(frame.key, value);
+            }
+        } else if (frame.metaDataKeys != null) {
+            tree.addMetaDataBatch(frame.key, frame.metaDataKeys, frame.metaDataValues);
+        }
+    }
+
+    private static String qualifiedName(XMLStreamReader reader) {
+        String prefix = reader.getPrefix();
+        return (prefix == null || prefix.isEmpty() ? reader.getLocalName() : prefix + ":" + reader.getLocalName());
+    }
+
+    /**
+     * 流式加载时栈中的元素.
+     */
+    private static final class Frame {
+
+        final String key;
+        final String[] metaDataKeys;
+        final String[] metaDataValues;
+        /**
+         * 是否没有子元素.
+         */
+        boolean leaf = true;
+
+        Frame(String key, String[] metaDataKeys, String[] metaDataValues) {
+            this.key = key;
+            this.metaDataKeys = metaDataKeys;
+            this.metaDataValues = metaDataValues;
+        }
+
+    }
+
     /**
      * 解析.
      *
      * @param root {@link Element} 根节点
      */
-    private void resolve(Element root) {
+    private void resolve(Element root, TrieTree tree) {
         NodeList list = root.getChildNodes();
         String base = root.getNodeName() + ".";
         for (int i = 0, l = list.getLength(); i < l; i++) {
             Node node = list.item(i);
             if (node.getNodeType() == Node.ELEMENT_NODE) {
-                doResolve((Element) node, newKey(node, base));
+                doResolve((Element) node, newKey(node, base), tree);
             }
         }
     }
@@ -59,20 +217,20 @@ public class XmlSource extends AbstractTreeBasedSource {
      * <br>
      * 2) 如果不是叶子节点，那么递归调用此方法.
      */
-    private void doResolve(Element element, String key) {
+    private void doResolve(Element element, String key, TrieTree tree) {
         NodeList list = element.getChildNodes();
         boolean isLeaf = true;
         for (int i = 0, l = list.getLength(); i < l; i++) {
             Node node = list.item(i);
             if (node.getNodeType() == Node.ELEMENT_NODE) {
                 isLeaf = false;
-                doResolve((Element) node, newKey(node, key));
+                doResolve((Element) node, newKey(node, key), tree);
             }
         }
         if (isLeaf) {
-            saveLeaf(key, element);
+            saveLeaf(key, element, tree);
         } else {
-            saveUnLeafAttributes(element, key);
+            saveUnLeafAttributes(element, key, tree);
         }
     }
 
@@ -81,7 +239,7 @@ public class XmlSource extends AbstractTreeBasedSource {
      *
      * @param key 未经过处理的(带有.)的key
      */
-    private void saveUnLeafAttributes(Node node, String key) {
+    private void saveUnLeafAttributes(Node node, String key, TrieTree tree) {
         key = key.substring(0, key.length() - 1);
         NamedNodeMap attributes = node.getAttributes();
         int length = attributes.getLength();
@@ -92,7 +250,7 @@ public class XmlSource extends AbstractTreeBasedSource {
                 metaDataKeys[i] = attr.getNodeName();
                 metaDataValues[i] = attr.getNodeValue();
             }
-            holder.addMetaDataBatch(key, metaDataKeys, metaDataValues);
+            tree.addMetaDataBatch(key, metaDataKeys, metaDataValues);
         }
     }
 
@@ -101,7 +259,7 @@ public class XmlSource extends AbstractTreeBasedSource {
      *
      * @param key 未经过处理的(带有.)的key
      */
-    private void saveLeaf(String key, Element element) {
+    private void saveLeaf(String key, Element element, TrieTree tree) {
         key = key.substring(0, key.length() - 1);
         String value = element.getTextContent().trim();
         NamedNodeMap attributes = element.getAttributes();
@@ -113,9 +271,9 @@ public class XmlSource extends AbstractTreeBasedSource {
                 metaDataKeys[i] = attr.getNodeName();
                 metaDataValues[i] = attr.getNodeValue();
             }
-            holder.add(key, value, metaDataKeys, metaDataValues);
+            tree.add(key, value, metaDataKeys, metaDataValues);
         } else {
-            holder.addValue(key, value);
+            tree.addValue(key, value);
         }
     }
 
@@ -128,18 +286,22 @@ public class XmlSource extends AbstractTreeBasedSource {
 
     @Override
     public String get(String key) {
-        String[] parts = key.split(metadataSeparator);
-        int length = parts.length;
-        String result;
-        if (length > 2) {
-            throw new IllegalStateException("Malformed key: " + key + ", example: key#attr.");
+        int index = key.indexOf(metadataSeparator);
+        if (index < 0) {
+            return holder.get(key);
         }
-        if (length == 1) {
-            result = holder.get(key);
-        } else {
-            result = holder.getMetaData(parts[0], parts[1]);
+        if (key.indexOf(metadataSeparator, index + 1) >= 0) {
+            throw new IllegalStateException("Malformed key: " + key + ", example: key#attr.");
         }
-        return result;
+        return holder.getMetaData(key.substring(0, index), key.substring(index + 1));
+    }
+
+    /**
+     * 属性(key#attr)不缓存类型化的值.
+     */
+    @Override
+    protected boolean isTreeKey(String key) {
+        return (key.indexOf(metadataSeparator) < 0);
     }
 
     /**
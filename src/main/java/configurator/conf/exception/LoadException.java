@@ -11,4 +11,8 @@ public class LoadException extends Exception {
         super(cause);
     }
 
+    public LoadException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
 }
@@ -0,0 +1,203 @@
+package configurator.inject;
+
+import configurator.bean.annotation.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * {@link Component}索引，每行一个类的binary name，有两种来源:
+ * <ul>
+ * <li>由{@link configurator.processor.ComponentIndexProcessor}在编译期生成，位于classpath下的{@link #LOCATION}.</li>
+ * <li>{@link Injector#scanIndex(String)}: 将扫描结果持久化到指定的文件，文件头记录了basePackage及classpath指纹，
+ * 指纹不一致时索引失效.</li>
+ * </ul>
+ *
+ * @author skywalker
+ */
+public final class ComponentIndex {
+
+    /**
+     * 索引在classpath中的位置.
+     */
+    public static final String LOCATION = "META-INF/configurator/components";
+
+    private static final String header = "#configurator component index";
+    private static final String fingerprintPrefix = "fingerprint=";
+    private static final String packagePrefix = "package=";
+
+    private ComponentIndex() {
+    }
+
+    /**
+     * 读取classpath中所有的索引文件，得到basePackage(包括子包)下的{@link Component}类名.
+     *
+     * @return null, 如果classpath中没有索引文件
+     * @throws IOException 如果读取失败
+     */
+    static Set<String> read(ClassLoader classLoader, String basePackage) throws IOException {
+        Enumeration<URL> resources = classLoader.getResources(LOCATION);
+        if (!resources.hasMoreElements()) {
+            return null;
+        }
+        Set<String> result = new LinkedHashSet<>();
+        while (resources.hasMoreElements()) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(resources.nextElement().openStream(),
+                    StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    line = line.trim();
+                    if (!line.isEmpty() && inPackage(line, basePackage)) {
+                        result.add(line);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 给定的类是否位于basePackage或其子包下.
+     */
+    static boolean inPackage(String className, String basePackage) {
+        return (basePackage == null || basePackage.isEmpty() ||
+                (className.startsWith(basePackage) && (className.length() == basePackage.length() ||
+                        className.charAt(basePackage.length()) == '.')));
+    }
+
+    /**
+     * 读取持久化的扫描索引.
+     *
+     * @param fingerprint 当前classpath的指纹，见{@link #fingerprint(Collection)}
+     * @return null, 如果文件不存在、格式错误、basePackage或指纹不一致
+     */
+    static Set<String> readScanIndex(Path file, String basePackage, String fingerprint) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            if (lines.size() < 3 || !lines.get(0).equals(header) ||
+                    !lines.get(1).equals(fingerprintPrefix + fingerprint) ||
+                    !lines.get(2).equals(packagePrefix + (basePackage == null ? "" : basePackage))) {
+                return null;
+            }
+            Set<String> result = new LinkedHashSet<>();
+            for (int i = 3, l = lines.size(); i < l; i++) {
+                String line = lines.get(i).trim();
+                if (!line.isEmpty() && inPackage(line, basePackage)) {
+                    result.add(line);
+                }
+            }
+            return result;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 将扫描结果写入file，写入失败(比如只读文件系统)时忽略，下次启动将重新扫描.
+     */
+    static void writeScanIndex(Path file, String basePackage, String fingerprint, Collection<Class<?>> classes) {
+        List<String> lines = new ArrayList<>(classes.size() + 3);
+        lines.add(header);
+        lines.add(fingerprintPrefix + fingerprint);
+        lines.add(packagePrefix + (basePackage == null ? "" : basePackage));
+        for (Class<?> clazz : classes) {
+            lines.add(clazz.getName());
+        }
+        try {
+            write(file, lines);
+        } catch (IOException | UnsupportedOperationException e) {
+            //ignore
+        }
+    }
+
+    /**
+     * 先写入同目录下的临时文件再替换，不支持原子替换的文件系统上退化为普通替换，临时文件在任何情况下都会被删除.
+     */
+    private static void write(Path file, List<String> lines) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, lines, StandardCharsets.UTF_8);
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 计算classpath的指纹: jar文件的路径、大小及修改时间，目录下所有class文件的相对路径、大小及修改时间.
+     * <p>只需要stat，不需要读取class文件，比扫描快得多.</p>
+     */
+    static String fingerprint(Collection<URL> urls) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        List<String> sorted = new ArrayList<>();
+        for (URL url : urls) {
+            sorted.add(url.toExternalForm());
+        }
+        Collections.sort(sorted);
+        for (String url : sorted) {
+            update(digest, url);
+            try {
+                Path path = Paths.get(new URL(url).toURI());
+                if (Files.isDirectory(path)) {
+                    fingerprintDirectory(digest, path);
+                } else if (Files.exists(path)) {
+                    update(digest, Files.size(path) + ":" + Files.getLastModifiedTime(path).toMillis());
+                }
+            } catch (Exception e) {
+                //非文件系统的url(比如嵌套jar)，只使用url本身
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest.digest()) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    private static void fingerprintDirectory(MessageDigest digest, Path root) throws IOException {
+        List<String> entries = new ArrayList<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (file.getFileName().toString().endsWith(".class")) {
+                    entries.add(root.relativize(file) + ":" + attrs.size() + ":" + attrs.lastModifiedTime().toMillis());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        Collections.sort(entries);
+        for (String entry : entries) {
+            update(digest, entry);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) '\n');
+    }
+
+}
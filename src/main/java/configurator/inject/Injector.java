@@ -1,6 +1,9 @@
 package configurator.inject;
 
 import configurator.bean.BeanContainer;
+import configurator.bean.accessor.AccessorFactory;
+import configurator.bean.accessor.GeneratedAccessorFactory;
+import configurator.bean.accessor.MethodHandleAccessorFactory;
 import configurator.bean.annotation.Component;
 import configurator.conf.Source;
 import configurator.conf.exception.LoadException;
@@ -8,8 +11,17 @@ import org.reflections.Reflections;
 import org.reflections.util.ClasspathHelper;
 import org.reflections.util.ConfigurationBuilder;
 
+import java.io.IOException;
 import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * 注入器.
@@ -24,6 +36,14 @@ public class Injector {
      */
     private String basePackage;
     private boolean allowCircularReference = true;
+    private AccessorFactory accessorFactory = new MethodHandleAccessorFactory();
+    private boolean useIndex = false;
+    /**
+     * 持久化的扫描索引文件，为null时不使用.
+     */
+    private Path scanIndex;
+    private boolean eagerInit = false;
+    private Executor eagerInitExecutor = ForkJoinPool.commonPool();
 
     /**
      * 设置配置来源{@link Source}.
@@ -56,22 +76,139 @@ public class Injector {
         return this;
     }
 
+    /**
+     * 设置生成构造器、字段及方法访问器的{@link AccessorFactory}，默认{@link MethodHandleAccessorFactory}.
+     */
+    public Injector accessorFactory(AccessorFactory accessorFactory) {
+        this.accessorFactory = accessorFactory;
+        return this;
+    }
+
+    /**
+     * 设置是否使用编译期生成的{@link ComponentIndex}，默认关闭.开启时索引被视为basePackage下完整的组件列表，不再扫描
+     * classpath，因此索引必须由完整的编译生成(增量编译或者部分模块未开启注解处理器时可能遗漏组件).索引不存在或者其中的类
+     * 已不存在时扫描classpath.
+     */
+    public Injector useIndex(boolean useIndex) {
+        this.useIndex = useIndex;
+        return this;
+    }
+
+    /**
+     * 设置持久化的扫描索引文件，比如META-INF/configurator/scan-index.第一次启动(或者在构建时执行一次注入)时将扫描结果
+     * 连同basePackage及classpath指纹写入此文件，此后的启动直接读取，当文件不存在或指纹(jar及class文件的大小、修改时间)
+     * 发生变化时重新扫描.
+     */
+    public Injector scanIndex(String path) {
+        this.scanIndex = Paths.get(path);
+        return this;
+    }
+
+    /**
+     * 设置是否在{@link #inject()}时提前创建所有{@link configurator.bean.Scope#SINGLETON}的bean，默认关闭.
+     *
+     * @see BeanContainer#preInstantiateSingletons(Executor)
+     */
+    public Injector eagerInit(boolean eagerInit) {
+        this.eagerInit = eagerInit;
+        return this;
+    }
+
+    /**
+     * 设置提前创建单例所使用的{@link Executor}，默认{@link ForkJoinPool#commonPool()}.
+     */
+    public Injector eagerInitExecutor(Executor executor) {
+        this.eagerInitExecutor = Objects.requireNonNull(executor);
+        return this;
+    }
+
     /**
      * 执行注入.
      *
      * @return {@link BeanContainer}
      */
     public BeanContainer inject() {
-        Reflections reflections = new Reflections(new ConfigurationBuilder().
-                setUrls(ClasspathHelper.forPackage(basePackage)));
-        Set<Class<?>> classes = reflections.getTypesAnnotatedWith(Component.class, true);
-        BeanContainer container = new BeanContainer(source, allowCircularReference);
+        Set<Class<?>> classes = useIndex ? loadIndexedComponents() : null;
+        if (classes == null) {
+            classes = scanComponents();
+        }
+        BeanContainer container = new BeanContainer(source, allowCircularReference,
+                new GeneratedAccessorFactory(accessorFactory));
         classes.forEach(c -> {
             if ((!Modifier.isAbstract(c.getModifiers())) && !c.isInterface() && Modifier.isPublic(c.getModifiers())) {
                 container.register(c);
             }
         });
+        if (eagerInit) {
+            container.preInstantiateSingletons(eagerInitExecutor);
+        }
         return container;
     }
 
+    /**
+     * 扫描classpath，寻找basePackage(包括子包)下所有被{@link Component}标注的类.
+     */
+    private Set<Class<?>> scanComponents() {
+        Collection<URL> urls = ClasspathHelper.forPackage(basePackage);
+        String fingerprint = null;
+        if (scanIndex != null) {
+            fingerprint = ComponentIndex.fingerprint(urls);
+            Set<Class<?>> classes = loadClasses(ComponentIndex.readScanIndex(scanIndex, basePackage, fingerprint));
+            if (classes != null) {
+                return classes;
+            }
+        }
+        Reflections reflections = new Reflections(new ConfigurationBuilder().setUrls(urls));
+        //forPackage返回的是包所在的整个classpath条目，与组件索引一样只保留basePackage下的类
+        Set<Class<?>> classes = new LinkedHashSet<>();
+        for (Class<?> clazz : reflections.getTypesAnnotatedWith(Component.class, true)) {
+            if (ComponentIndex.inPackage(clazz.getName(), basePackage)) {
+                classes.add(clazz);
+            }
+        }
+        if (scanIndex != null) {
+            ComponentIndex.writeScanIndex(scanIndex, basePackage, fingerprint, classes);
+        }
+        return classes;
+    }
+
+    /**
+     * 从{@link ComponentIndex}中加载basePackage下的{@link Component}.
+     *
+     * @return null, 如果没有索引或者索引已失效(类不存在)
+     */
+    private Set<Class<?>> loadIndexedComponents() {
+        try {
+            return loadClasses(ComponentIndex.read(getClassLoader(), basePackage));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 加载索引中的类.
+     *
+     * @return null, 如果names为null或者某个类已不存在
+     */
+    private Set<Class<?>> loadClasses(Set<String> names) {
+        if (names == null) {
+            return null;
+        }
+        ClassLoader classLoader = getClassLoader();
+        Set<Class<?>> classes = new LinkedHashSet<>();
+        try {
+            for (String name : names) {
+                classes.add(Class.forName(name, false, classLoader));
+            }
+        } catch (ClassNotFoundException | LinkageError e) {
+            return null;
+        }
+        return classes;
+    }
+
+    private ClassLoader getClassLoader() {
+        ClassLoader classLoader = ClasspathHelper.contextClassLoader();
+        return (classLoader != null ? classLoader : Injector.class.getClassLoader());
+    }
+
 }
@@ -0,0 +1,300 @@
+package configurator.processor;
+
+import configurator.bean.accessor.GeneratedAccessorFactory;
+import configurator.inject.ComponentIndex;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * 编译期注解处理器，可选，需要通过javac -processor或者maven-compiler-plugin的annotationProcessors显式开启.生成:
+ * <ul>
+ * <li>{@link ComponentIndex#LOCATION}: 所有{@link configurator.bean.annotation.Component}类的索引，
+ * {@link configurator.inject.Injector}发现索引时不再扫描classpath.</li>
+ * <li>每个bean类型(以及声明了注入成员的父类)的{@link configurator.bean.accessor.GeneratedAccessors}实现，直接调用构造器、
+ * 被{@link configurator.bean.annotation.Value}、{@link javax.annotation.Resource}标注的字段及方法、
+ * {@link configurator.bean.annotation.Init}、{@link configurator.bean.annotation.Destroy}方法.private、static及final成员
+ * 不生成，运行时退化为反射.</li>
+ * </ul>
+ *
+ * @author skywalker
+ */
+@SupportedAnnotationTypes({
+        ComponentIndexProcessor.COMPONENT,
+        ComponentIndexProcessor.VALUE,
+        ComponentIndexProcessor.RESOURCE,
+        ComponentIndexProcessor.INIT,
+        ComponentIndexProcessor.DESTROY
+})
+public class ComponentIndexProcessor extends AbstractProcessor {
+
+    static final String COMPONENT = "configurator.bean.annotation.Component";
+    static final String VALUE = "configurator.bean.annotation.Value";
+    static final String RESOURCE = "javax.annotation.Resource";
+    static final String INIT = "configurator.bean.annotation.Init";
+    static final String DESTROY = "configurator.bean.annotation.Destroy";
+
+    private static final String accessorsInterface = "configurator.bean.accessor.GeneratedAccessors";
+
+    /**
+     * 索引中的类名，排序以保证生成的文件稳定.
+     */
+    private final Set<String> components = new TreeSet<>();
+    /**
+     * 需要生成访问器的类型 -> 被注入注解标注的成员.
+     */
+    private final Map<TypeElement, Set<Element>> members = new LinkedHashMap<>();
+    private final Set<TypeElement> componentTypes = new HashSet<>();
+    private final Set<String> generated = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            boolean isComponent = annotation.getQualifiedName().contentEquals(COMPONENT);
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (isComponent) {
+                    collectComponent(element);
+                } else if (element.getKind() == ElementKind.FIELD || element.getKind() == ElementKind.METHOD) {
+                    TypeElement type = (TypeElement) element.getEnclosingElement();
+                    members.computeIfAbsent(type, key -> new LinkedHashSet<>()).add(element);
+                }
+            }
+        }
+        Set<TypeElement> types = new LinkedHashSet<>(componentTypes);
+        types.addAll(members.keySet());
+        for (TypeElement type : types) {
+            String name = processingEnv.getElementUtils().getBinaryName(type).toString();
+            if (isAccessible(type) && generated.add(name)) {
+                writeAccessors(type, name);
+            }
+        }
+        if (roundEnv.processingOver()) {
+            writeIndex();
+        }
+        return false;
+    }
+
+    private void collectComponent(Element element) {
+        if (element.getKind() != ElementKind.CLASS) {
+            return;
+        }
+        Set<Modifier> modifiers = element.getModifiers();
+        if (modifiers.contains(Modifier.PUBLIC) && !modifiers.contains(Modifier.ABSTRACT)) {
+            TypeElement type = (TypeElement) element;
+            components.add(processingEnv.getElementUtils().getBinaryName(type).toString());
+            componentTypes.add(type);
+        }
+    }
+
+    /**
+     * 生成的类与type位于同一个包，type及其外部类都不能是private.
+     */
+    private boolean isAccessible(TypeElement type) {
+        Element element = type;
+        while (element != null && element.getKind() != ElementKind.PACKAGE) {
+            if (element.getModifiers().contains(Modifier.PRIVATE)) {
+                return false;
+            }
+            element = element.getEnclosingElement();
+        }
+        return true;
+    }
+
+    private void writeIndex() {
+        if (components.isEmpty()) {
+            return;
+        }
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+                    ComponentIndex.LOCATION);
+            try (Writer writer = file.openWriter()) {
+                for (String component : components) {
+                    writer.write(component);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Write component index failed: " + e.getMessage());
+        }
+    }
+
+    private void writeAccessors(TypeElement type, String binaryName) {
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)) +
+                GeneratedAccessorFactory.SUFFIX;
+        String target = "((" + processingEnv.getTypeUtils().erasure(type.asType()) + ") target)";
+        StringBuilder sb = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            sb.append("package ").append(packageName).append(";\n\n");
+        }
+        sb.append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n")
+                .append("public final class ").append(simpleName).append(" implements ")
+                .append(accessorsInterface).append(" {\n\n");
+        writeInstantiator(sb, type);
+        List<String> setters = new ArrayList<>(), invokers = new ArrayList<>();
+        for (Element member : members.getOrDefault(type, Collections.emptySet())) {
+            Set<Modifier> modifiers = member.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.STATIC)) {
+                continue;
+            }
+            String name = member.getSimpleName().toString();
+            if (member.getKind() == ElementKind.FIELD) {
+                if (!modifiers.contains(Modifier.FINAL) && !isOnlyLifecycle(member)) {
+                    setters.add(caseOf(name, "(target, value) -> " + target + "." + name + " = " +
+                            cast(member.asType(), "value")));
+                }
+                continue;
+            }
+            List<? extends VariableElement> parameters = ((ExecutableElement) member).getParameters();
+            String key = memberKey((ExecutableElement) member);
+            if (parameters.size() == 1 && !isOnlyLifecycle(member)) {
+                setters.add(caseOf(key, "(target, value) -> " + target + "." + name + "(" +
+                        cast(parameters.get(0).asType(), "value") + ")"));
+            }
+            if (isLifecycle(member)) {
+                StringBuilder args = new StringBuilder();
+                for (int i = 0; i < parameters.size(); i++) {
+                    args.append(i > 0 ? ", " : "").append(cast(parameters.get(i).asType(), "args[" + i + "]"));
+                }
+                invokers.add(caseOf(key, "(target, args) -> " + target + "." + name + "(" + args + ")"));
+            }
+        }
+        writeSwitch(sb, "configurator.bean.accessor.Setter", "setter", setters);
+        writeSwitch(sb, "configurator.bean.accessor.Invoker", "invoker", invokers);
+        sb.append("}\n");
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(
+                    (packageName.isEmpty() ? "" : packageName + ".") + simpleName, type);
+            try (Writer writer = file.openWriter()) {
+                writer.write(sb.toString());
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Generate accessors failed: " + e.getMessage(), type);
+        }
+    }
+
+    /**
+     * 为唯一的public构造器生成instantiator()，非bean类型、抽象类或者构造器不唯一时返回null.
+     */
+    private void writeInstantiator(StringBuilder sb, TypeElement type) {
+        sb.append("    @Override\n    public configurator.bean.accessor.Instantiator instantiator() {\n");
+        List<ExecutableElement> constructors = new ArrayList<>();
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getModifiers().contains(Modifier.PUBLIC)) {
+                constructors.add(constructor);
+            }
+        }
+        boolean nonStaticInner = (type.getNestingKind() == NestingKind.MEMBER &&
+                !type.getModifiers().contains(Modifier.STATIC));
+        if (componentTypes.contains(type) && constructors.size() == 1 && !nonStaticInner) {
+            List<? extends VariableElement> parameters = constructors.get(0).getParameters();
+            StringBuilder args = new StringBuilder();
+            for (int i = 0; i < parameters.size(); i++) {
+                args.append(i > 0 ? ", " : "").append(cast(parameters.get(i).asType(), "args[" + i + "]"));
+            }
+            sb.append("        return args -> new ").append(processingEnv.getTypeUtils().erasure(type.asType()))
+                    .append("(").append(args).append(");\n");
+        } else {
+            sb.append("        return null;\n");
+        }
+        sb.append("    }\n\n");
+    }
+
+    private void writeSwitch(StringBuilder sb, String returnType, String method, List<String> cases) {
+        sb.append("    @Override\n    public ").append(returnType).append(" ").append(method)
+                .append("(String member) {\n        switch (member) {\n");
+        for (String c : cases) {
+            sb.append(c);
+        }
+        sb.append("            default:\n                return null;\n        }\n    }\n\n");
+    }
+
+    /**
+     * 方法的成员名: 方法名及参数的擦除类型，比如setName(java.lang.String)，与
+     * {@link GeneratedAccessorFactory}中由{@link Class#getTypeName()}得到的形式相同.
+     */
+    private String memberKey(ExecutableElement method) {
+        StringBuilder sb = new StringBuilder(method.getSimpleName()).append('(');
+        List<? extends VariableElement> parameters = method.getParameters();
+        for (int i = 0; i < parameters.size(); i++) {
+            TypeMirror type = processingEnv.getTypeUtils().erasure(parameters.get(i).asType());
+            sb.append(i > 0 ? "," : "").append(typeName(type));
+        }
+        return sb.append(')').toString();
+    }
+
+    private String typeName(TypeMirror type) {
+        if (type.getKind() == TypeKind.ARRAY) {
+            return typeName(((ArrayType) type).getComponentType()) + "[]";
+        }
+        if (type.getKind() == TypeKind.DECLARED) {
+            return processingEnv.getElementUtils().getBinaryName((TypeElement) ((DeclaredType) type).asElement())
+                    .toString();
+        }
+        return type.toString();
+    }
+
+    private String caseOf(String key, String lambda) {
+        return "            case \"" + key + "\":\n                return " + lambda + ";\n";
+    }
+
+    /**
+     * 转换为type的擦除类型，基本类型转换为其包装类型以便拆箱.
+     */
+    private String cast(TypeMirror type, String expression) {
+        String target;
+        if (type.getKind().isPrimitive()) {
+            target = processingEnv.getTypeUtils().boxedClass((PrimitiveType) type).getQualifiedName().toString();
+        } else if (type.getKind() == TypeKind.TYPEVAR || type.getKind() == TypeKind.DECLARED ||
+                type.getKind() == TypeKind.ARRAY) {
+            target = processingEnv.getTypeUtils().erasure(type).toString();
+        } else {
+            target = "Object";
+        }
+        return "(" + target + ") " + expression;
+    }
+
+    private boolean isLifecycle(Element member) {
+        return (hasAnnotation(member, INIT) || hasAnnotation(member, DESTROY));
+    }
+
+    /**
+     * 只被{@link configurator.bean.annotation.Init}或{@link configurator.bean.annotation.Destroy}标注，不需要setter.
+     */
+    private boolean isOnlyLifecycle(Element member) {
+        return !(hasAnnotation(member, VALUE) || hasAnnotation(member, RESOURCE));
+    }
+
+    private boolean hasAnnotation(Element element, String annotation) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotation)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
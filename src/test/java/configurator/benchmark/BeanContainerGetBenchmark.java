@@ -0,0 +1,63 @@
+package configurator.benchmark;
+
+import configurator.bean.BeanContainer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多线程下{@link BeanContainer#get(String)}和{@link BeanContainer#get(Class)}获取已创建单例的吞吐量.
+ * <p>运行{@link #main(String[])}，线程数依次为1、2、4、8、16、32.</p>
+ *
+ * @author skywalker
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BeanContainerGetBenchmark {
+
+    private BeanContainer container;
+
+    @Setup
+    public void setup() {
+        container = new BeanContainer(null, true);
+        container.register(Service.class, configurator.bean.Scope.SINGLETON, "service");
+        container.get("service");
+    }
+
+    @TearDown
+    public void tearDown() {
+        container.close();
+    }
+
+    @Benchmark
+    public Object getByName() {
+        return container.get("service");
+    }
+
+    @Benchmark
+    public Object getByClass() {
+        return container.get(Service.class);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads = 1; threads <= 32; threads <<= 1) {
+            Options options = new OptionsBuilder()
+                    .include(BeanContainerGetBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+
+    public static class Service {
+    }
+
+}
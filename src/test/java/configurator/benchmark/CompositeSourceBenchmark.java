@@ -0,0 +1,124 @@
+package configurator.benchmark;
+
+import configurator.conf.CompositeSource;
+import configurator.conf.PropertiesSource;
+import configurator.conf.Source;
+import configurator.conf.exception.LoadException;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多层{@link CompositeSource}的查找开销: 合并索引与逐个查找(直接依次调用每个{@link Source})对比，key分别位于第一个、
+ * 最后一个来源以及不存在.前缀搜索: 单次合并与逐个find再putAll对比.
+ *
+ * @author skywalker
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompositeSourceBenchmark {
+
+    private static final int layers = 8;
+    private static final int keysPerLayer = 1000;
+
+    private CompositeSource composite;
+    private List<Source> sources;
+    private List<File> files;
+
+    @Setup
+    public void setup() throws IOException, LoadException {
+        composite = new CompositeSource();
+        sources = new ArrayList<>();
+        files = new ArrayList<>();
+        for (int layer = 0; layer < layers; layer++) {
+            File file = File.createTempFile("layer" + layer, ".properties");
+            try (FileWriter writer = new FileWriter(file)) {
+                for (int i = 0; i < keysPerLayer; i++) {
+                    writer.write("service.layer" + layer + ".key" + i + "=value" + i + "\n");
+                }
+            }
+            Source source = new PropertiesSource(file.getPath());
+            composite.registerSource(source);
+            sources.add(source);
+            files.add(file);
+        }
+        composite.load();
+    }
+
+    @TearDown
+    public void tearDown() {
+        files.forEach(File::delete);
+    }
+
+    @Benchmark
+    public String indexFirst() {
+        return composite.get("service.layer0.key500");
+    }
+
+    @Benchmark
+    public String indexLast() {
+        return composite.get("service.layer7.key500");
+    }
+
+    @Benchmark
+    public String indexMiss() {
+        return composite.get("service.layer9.key500");
+    }
+
+    @Benchmark
+    public String traverseLast() {
+        return traverse("service.layer7.key500");
+    }
+
+    @Benchmark
+    public String traverseMiss() {
+        return traverse("service.layer9.key500");
+    }
+
+    @Benchmark
+    public Object findAll() {
+        return composite.find("*");
+    }
+
+    @Benchmark
+    public Object findAllPutAll() {
+        Map<String, String> result = new LinkedHashMap<>();
+        for (Source source : sources) {
+            result.putAll(source.find(""));
+        }
+        return result;
+    }
+
+    private String traverse(String key) {
+        for (Source source : sources) {
+            String result = source.get(key);
+            if (result != null) {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(CompositeSourceBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+}
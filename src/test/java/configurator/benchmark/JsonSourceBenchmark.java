@@ -0,0 +1,133 @@
+package configurator.benchmark;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import configurator.conf.JsonSource;
+import configurator.conf.exception.LoadException;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link JsonSource}加载时展开的扁平索引与逐层遍历{@link JSONObject}(split后按段查找嵌套object，前缀搜索时递归收集)
+ * 的查找开销对比.
+ *
+ * @author skywalker
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSourceBenchmark {
+
+    /**
+     * 每一层的子节点数.
+     */
+    private static final int fanOut = 4;
+    private static final int depth = 6;
+
+    private JsonSource source;
+    private JSONObject json;
+    private File file;
+    private String[] keys;
+    private int index;
+
+    @Setup
+    public void setup() throws IOException, LoadException {
+        int count = (int) Math.pow(fanOut, depth);
+        keys = new String[count];
+        JSONObject root = new JSONObject(true);
+        for (int i = 0; i < count; i++) {
+            StringBuilder sb = new StringBuilder();
+            JSONObject parent = root;
+            for (int level = 0, n = i; level < depth; level++, n /= fanOut) {
+                String segment = (char) ('a' + level) + String.valueOf(n % fanOut);
+                sb.append(level > 0 ? "." : "").append(segment);
+                if (level == depth - 1) {
+                    parent.put(segment, "value" + i);
+                } else {
+                    parent = (JSONObject) parent.computeIfAbsent(segment, k -> new JSONObject(true));
+                }
+            }
+            keys[i] = sb.toString();
+        }
+        file = File.createTempFile("source", ".json");
+        Files.write(file.toPath(), root.toJSONString().getBytes(StandardCharsets.UTF_8));
+        source = new JsonSource(file.getPath());
+        source.load();
+        json = (JSONObject) JSON.parse(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public String indexGet() {
+        return source.get(nextKey());
+    }
+
+    @Benchmark
+    public String walkGet() {
+        String[] parts = nextKey().split("\\.");
+        JSONObject parent = json;
+        for (int i = 0; i < parts.length - 1 && parent != null; i++) {
+            parent = parent.getJSONObject(parts[i]);
+        }
+        return (parent == null ? null : parent.getString(parts[parts.length - 1]));
+    }
+
+    @Benchmark
+    public Object indexFind() {
+        return source.find("a1.b2.c3.d0");
+    }
+
+    @Benchmark
+    public Object walkFind() {
+        String prefix = "a1.b2.c3.d0";
+        JSONObject parent = json;
+        for (String part : prefix.split("\\.")) {
+            parent = parent.getJSONObject(part);
+        }
+        Map<String, String> result = new LinkedHashMap<>();
+        collect(prefix + ".", parent, result);
+        return result;
+    }
+
+    private void collect(String prefix, JSONObject parent, Map<String, String> result) {
+        parent.forEach((key, value) -> {
+            if (value instanceof JSONObject) {
+                collect(prefix + key + ".", (JSONObject) value, result);
+            } else {
+                result.put(prefix + key, String.valueOf(value));
+            }
+        });
+    }
+
+    private String nextKey() {
+        String key = keys[index];
+        index = (index + 1) & (keys.length - 1);
+        return key;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(JsonSourceBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+}
@@ -0,0 +1,102 @@
+package configurator.benchmark;
+
+import configurator.bean.BeanContainer;
+import configurator.bean.accessor.AccessorFactory;
+import configurator.bean.accessor.MethodHandleAccessorFactory;
+import configurator.bean.accessor.ReflectionAccessorFactory;
+import configurator.bean.annotation.Init;
+import configurator.bean.annotation.Value;
+import configurator.conf.PropertiesSource;
+import configurator.conf.exception.LoadException;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.annotation.Resource;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link configurator.bean.Scope#PROTOTYPE} bean的创建开销: 构造、{@link Value}注入、{@link Resource}注入以及{@link Init}方法，
+ * 分别使用{@link MethodHandleAccessorFactory}和{@link ReflectionAccessorFactory}.
+ *
+ * @author skywalker
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrototypeCreationBenchmark {
+
+    @Param({"methodHandle", "reflection"})
+    private String accessor;
+
+    private BeanContainer container;
+    private File file;
+
+    @Setup
+    public void setup() throws IOException, LoadException {
+        file = File.createTempFile("prototype", ".properties");
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write("handler.name=benchmark\nhandler.timeout=3000\nhandler.enabled=true\n");
+        }
+        PropertiesSource source = new PropertiesSource(file.getPath());
+        source.load();
+        AccessorFactory accessorFactory = accessor.equals("reflection") ? new ReflectionAccessorFactory() :
+                new MethodHandleAccessorFactory();
+        container = new BeanContainer(source, true, accessorFactory);
+        container.register(Dependency.class, configurator.bean.Scope.SINGLETON, "dependency");
+        container.register(Handler.class, configurator.bean.Scope.PROTOTYPE, "handler");
+    }
+
+    @TearDown
+    public void tearDown() {
+        container.close();
+        file.delete();
+    }
+
+    @Benchmark
+    public Object createPrototype() {
+        return container.get("handler");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(PrototypeCreationBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+    public static class Dependency {
+    }
+
+    public static class Handler {
+
+        @Value(key = "handler.name")
+        private String name;
+        @Value(key = "handler.timeout")
+        private int timeout;
+        private boolean enabled;
+        @Resource
+        private Dependency dependency;
+        private boolean initialized;
+
+        @Value(key = "handler.enabled")
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        @Init
+        public void init() {
+            initialized = true;
+        }
+
+    }
+
+}
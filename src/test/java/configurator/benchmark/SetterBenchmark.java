@@ -0,0 +1,64 @@
+package configurator.benchmark;
+
+import configurator.bean.accessor.MethodHandleAccessorFactory;
+import configurator.bean.accessor.ReflectionAccessorFactory;
+import configurator.bean.accessor.Setter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单次字段注入的开销: {@link MethodHandleAccessorFactory}与{@link ReflectionAccessorFactory}.
+ *
+ * @author skywalker
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SetterBenchmark {
+
+    @Param({"methodHandle", "reflection"})
+    private String accessor;
+
+    private Setter setter;
+    private final Target target = new Target();
+    private final Object value = "value";
+
+    @Setup
+    public void setup() throws Exception {
+        Field field = Target.class.getDeclaredField("name");
+        switch (accessor) {
+            case "methodHandle":
+                setter = new MethodHandleAccessorFactory().setter(field);
+                break;
+            default:
+                setter = new ReflectionAccessorFactory().setter(field);
+        }
+    }
+
+    @Benchmark
+    public Object set() throws Throwable {
+        setter.set(target, value);
+        return target;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(SetterBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+    public static class Target {
+        private String name;
+    }
+
+}
@@ -0,0 +1,100 @@
+package configurator.benchmark;
+
+import configurator.conf.JsonSource;
+import configurator.conf.exception.LoadException;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 大配置文件的冷启动: 每次调用创建新的{@link JsonSource}并加载，对比DOM解析、流式解析以及读取二进制快照.
+ *
+ * @author skywalker
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class SnapshotColdStartBenchmark {
+
+    /**
+     * 配置文件的大小(MB).
+     */
+    @Param("100")
+    private int sizeMb;
+
+    private File file;
+    private File snapshot;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, LoadException {
+        file = File.createTempFile("cold", ".json");
+        snapshot = new File(file.getPath() + ".snapshot");
+        long limit = sizeMb * 1024L * 1024L;
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            writer.write('{');
+            long written = 1;
+            for (int group = 0; written < limit; group++) {
+                StringBuilder sb = new StringBuilder(group > 0 ? "," : "").append("\"group").append(group).append("\":{");
+                for (int i = 0; i < 100; i++) {
+                    sb.append(i > 0 ? "," : "").append("\"key").append(i).append("\":\"value-").append(group)
+                            .append('-').append(i).append('"');
+                }
+                sb.append('}');
+                writer.write(sb.toString());
+                written += sb.length();
+            }
+            writer.write('}');
+        }
+        JsonSource source = new JsonSource(file.getPath(), true);
+        source.setSnapshotPath(snapshot.getPath());
+        source.load();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        file.delete();
+        snapshot.delete();
+    }
+
+    @Benchmark
+    public JsonSource dom() throws LoadException {
+        JsonSource source = new JsonSource(file.getPath());
+        source.load();
+        return source;
+    }
+
+    @Benchmark
+    public JsonSource streaming() throws LoadException {
+        JsonSource source = new JsonSource(file.getPath(), true);
+        source.load();
+        return source;
+    }
+
+    @Benchmark
+    public JsonSource snapshot() throws LoadException {
+        JsonSource source = new JsonSource(file.getPath(), true);
+        source.setSnapshotPath(snapshot.getPath());
+        source.load();
+        return source;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(SnapshotColdStartBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+}
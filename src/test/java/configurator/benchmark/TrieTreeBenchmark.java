@@ -0,0 +1,135 @@
+package configurator.benchmark;
+
+import configurator.conf.ConfigKey;
+import configurator.conf.PropertiesSource;
+import configurator.conf.TrieTree;
+import configurator.conf.exception.LoadException;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 深层key(a.b.c.d.e.f)在{@link TrieTree}(冻结前后)、{@link PropertiesSource}及其{@link ConfigKey}上的查找开销，
+ * 配合-prof gc观察每次查找的分配.
+ *
+ * @author skywalker
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrieTreeBenchmark {
+
+    /**
+     * 每一层的子节点数.
+     */
+    private static final int fanOut = 4;
+    private static final int depth = 6;
+
+    private TrieTree tree;
+    private TrieTree frozenTree;
+    private PropertiesSource source;
+    private ConfigKey<String> configKey;
+    private File file;
+    private String[] keys;
+    private int index;
+
+    @Setup
+    public void setup() throws IOException, LoadException {
+        int count = (int) Math.pow(fanOut, depth);
+        keys = new String[count];
+        tree = new TrieTree();
+        frozenTree = new TrieTree();
+        file = File.createTempFile("trie", ".properties");
+        try (FileWriter writer = new FileWriter(file)) {
+            for (int i = 0; i < count; i++) {
+                StringBuilder sb = new StringBuilder();
+                for (int level = 0, n = i; level < depth; level++, n /= fanOut) {
+                    sb.append(level > 0 ? "." : "").append((char) ('a' + level)).append(n % fanOut);
+                }
+                keys[i] = sb.toString();
+                tree.addValue(keys[i], "value" + i);
+                frozenTree.addValue(keys[i], "value" + i);
+                writer.write(keys[i] + "=value" + i + "\n");
+            }
+        }
+        frozenTree.freeze();
+        source = new PropertiesSource(file.getPath());
+        source.load();
+        configKey = source.key(keys[keys.length - 1], String.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public String treeGet() {
+        return tree.get(nextKey());
+    }
+
+    @Benchmark
+    public String frozenTreeGet() {
+        return frozenTree.get(nextKey());
+    }
+
+    @Benchmark
+    public String sourceGet() {
+        return source.get(nextKey());
+    }
+
+    @Benchmark
+    public String sourceGetSameKey() {
+        return source.get(keys[keys.length - 1]);
+    }
+
+    @Benchmark
+    public String configKeyGet() {
+        return configKey.getString();
+    }
+
+    @Benchmark
+    public Object treeFind() {
+        return tree.find("a1.b2.c3.d0");
+    }
+
+    @Benchmark
+    public Object frozenTreeFind() {
+        return frozenTree.find("a1.b2.c3.d0");
+    }
+
+    @Benchmark
+    public void frozenTreeForEach(Blackhole blackhole) {
+        frozenTree.forEach("a1", (key, value) -> blackhole.consume(value));
+    }
+
+    @Benchmark
+    public Object frozenTreeFindWide() {
+        return frozenTree.find("a1");
+    }
+
+    private String nextKey() {
+        String key = keys[index];
+        index = (index + 1) & (keys.length - 1);
+        return key;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(TrieTreeBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+}
@@ -0,0 +1,92 @@
+package configurator.benchmark;
+
+import configurator.conf.PropertiesSource;
+import configurator.conf.StringPool;
+import configurator.conf.TrieTree;
+import configurator.conf.exception.LoadException;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@link TrieTree}的内存占用: 生成一个含有500k个key的properties文件，分别测量加载阶段的节点树、冻结之后以及
+ * {@link PropertiesSource}(是否使用{@link StringPool})加载后的堆增量.通过多次{@link System#gc()}之后的{@link Runtime}堆使用量估算，运行:
+ * <pre>java -Xmx2g -cp ... configurator.benchmark.TrieTreeMemoryBenchmark [keys]</pre>
+ *
+ * @author skywalker
+ */
+public class TrieTreeMemoryBenchmark {
+
+    public static void main(String[] args) throws IOException, LoadException {
+        int count = (args.length > 0 ? Integer.parseInt(args[0]) : 500_000);
+        File file = File.createTempFile("memory", ".properties");
+        try {
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file),
+                    StandardCharsets.ISO_8859_1))) {
+                for (int i = 0; i < count; i++) {
+                    writer.write(key(i) + "=" + value(i) + "\n");
+                }
+            }
+            long base = usedHeap();
+            TrieTree tree = new TrieTree();
+            for (int i = 0; i < count; i++) {
+                tree.addValue(key(i), value(i));
+            }
+            report("TrieTree (nodes)", count, usedHeap() - base);
+            tree.freeze();
+            report("TrieTree (frozen)", count, usedHeap() - base);
+            check(tree.get(key(1)));
+            tree = null;
+
+            base = usedHeap();
+            PropertiesSource source = new PropertiesSource(file.getPath());
+            source.load();
+            report("PropertiesSource", count, usedHeap() - base);
+            check(source.get(key(1)));
+            source = null;
+
+            base = usedHeap();
+            StringPool pool = new StringPool();
+            PropertiesSource pooled = new PropertiesSource(file.getPath());
+            pooled.setStringPool(pool);
+            pooled.load();
+            pool = null;
+            report("PropertiesSource (pooled)", count, usedHeap() - base);
+            check(pooled.get(key(1)));
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static String key(int i) {
+        return "app.module" + (i % 100) + ".group" + (i % 5000) + ".key" + i;
+    }
+
+    /**
+     * 生成的配置中大量重复的短值.
+     */
+    private static String value(int i) {
+        return (i % 3 == 0 ? "true" : (i % 3 == 1 ? "8080" : "localhost"));
+    }
+
+    private static void check(String value) {
+        if (!"8080".equals(value)) {
+            throw new IllegalStateException("Unexpected value: " + value);
+        }
+    }
+
+    private static void report(String name, int count, long bytes) {
+        System.out.printf("%-26s %10.1f MB %8.1f bytes/key%n", name, bytes / 1024.0 / 1024.0, (double) bytes / count);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+}
@@ -1,17 +1,40 @@
 package configurator.ioc;
 
 import configurator.bean.BeanContainer;
+import configurator.bean.BeanContainerAware;
+import configurator.bean.Scope;
+import configurator.bean.accessor.GeneratedAccessorFactory;
+import configurator.bean.accessor.Invoker;
+import configurator.bean.accessor.MethodHandleAccessorFactory;
+import configurator.bean.accessor.ReflectionAccessorFactory;
+import configurator.bean.accessor.Setter;
 import configurator.bean.annotation.Component;
+import configurator.bean.annotation.Value;
+import configurator.bean.converter.TypeConverter;
 import configurator.conf.CompositeSource;
 import configurator.conf.JsonSource;
 import configurator.conf.PropertiesSource;
 import configurator.conf.XmlSource;
 import configurator.conf.exception.LoadException;
 import configurator.inject.Injector;
+import configurator.json.JsonHolder;
+import configurator.properties.DB;
+import configurator.xml.SubReporter;
 import org.junit.Assert;
 import org.junit.Test;
 
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * 测试IOC功能.
@@ -57,6 +80,19 @@ public class IOCTest {
         Assert.assertTrue(s1 != s2);
     }*/
 
+    /**
+     * 测试{@link configurator.bean.Scope#PROTOTYPE}，每次获取都会创建新的实例.
+     */
+    @Test
+    public void prototype() {
+        Injector injector = new Injector();
+        BeanContainer container = injector.basePackage("configurator.ioc").inject();
+        ChinaStudent s1 = container.get(ChinaStudent.class);
+        ChinaStudent s2 = container.get(ChinaStudent.class);
+        Assert.assertNotSame(s1, s2);
+        Assert.assertEquals(s1.toString(), s2.toString());
+    }
+
     @Test
     public void annotation() throws ClassNotFoundException {
         Class clazz = Class.forName("configurator.ioc.ChinaStudent");
@@ -76,6 +112,25 @@ public class IOCTest {
         Assert.assertTrue(s1.get() == s2.get());
     }
 
+    /**
+     * 多线程并发获取有依赖的单例，只会创建一次.
+     */
+    @Test
+    public void concurrentSingleton() throws ExecutionException, InterruptedException {
+        Injector injector = new Injector();
+        BeanContainer container = injector.basePackage("configurator.ioc").inject();
+        ExecutorService service = Executors.newFixedThreadPool(8);
+        List<Future<Student>> futures = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            futures.add(service.submit(() -> container.get(Student.class)));
+        }
+        service.shutdown();
+        Student first = futures.get(0).get();
+        for (Future<Student> future : futures) {
+            Assert.assertSame(first, future.get());
+        }
+    }
+
     /**
      * 测试{@link BeanContainer#getBeansWithType(Class)}.
      */
@@ -89,6 +144,177 @@ public class IOCTest {
         System.out.println(container.get(Student.class));
     }
 
+    /**
+     * 按父类、接口获取以及detach之后的类型索引.
+     */
+    @Test
+    public void getBySuperType() {
+        Injector injector = new Injector();
+        BeanContainer container = injector.basePackage("configurator.ioc").inject();
+        Assert.assertEquals(2, container.getBeansWithType(Student.class).size());
+        Assert.assertNotNull(container.get(BeanContainerAware.class));
+        Assert.assertTrue(container.get(Student.class).getClass() == Student.class);
+        container.detachBean(Student.class, false);
+        Assert.assertTrue(container.get(Student.class) instanceof ChinaStudent);
+        Assert.assertEquals(1, container.getBeansWithType(Student.class).size());
+    }
+
+    /**
+     * 编译期生成的组件索引与classpath扫描得到相同的bean，都只包括basePackage下的组件.
+     */
+    @Test
+    public void componentIndex() throws Throwable {
+        BeanContainer indexed = new Injector().useIndex(true).basePackage("configurator.ioc").inject();
+        BeanContainer scanned = new Injector().useIndex(false).basePackage("configurator.ioc").inject();
+        for (Class<?> clazz : new Class<?>[]{Student.class, ChinaStudent.class, Teacher.class, JsonHolder.class,
+                DB.class, SubReporter.class}) {
+            Assert.assertEquals(indexed.getBeansWithType(clazz).size(), scanned.getBeansWithType(clazz).size());
+        }
+        //其它包中的组件都不注册
+        Assert.assertTrue(scanned.getBeansWithType(JsonHolder.class).isEmpty());
+        Assert.assertNotNull(indexed.get("teacher"));
+        GeneratedAccessorFactory factory = new GeneratedAccessorFactory(new ReflectionAccessorFactory());
+        Object student = factory.instantiator(Student.class.getConstructor()).newInstance(new Object[0]);
+        Assert.assertTrue(student instanceof Student);
+    }
+
+    /**
+     * {@link MethodHandleAccessorFactory}为每个成员生成的访问器.
+     */
+    @Test
+    public void methodHandleAccessors() throws Throwable {
+        MethodHandleAccessorFactory factory = new MethodHandleAccessorFactory();
+        Setter setter = factory.setter(CircularA.class.getDeclaredField("circularB"));
+        CircularA a = (CircularA) factory.instantiator(CircularA.class.getConstructor()).newInstance(new Object[0]);
+        CircularB b = new CircularB();
+        setter.set(a, b);
+        Assert.assertSame(b, a.circularB);
+        Point point = (Point) factory.instantiator(Point.class.getDeclaredConstructor(int.class))
+                .newInstance(new Object[]{7});
+        Assert.assertEquals(7, point.x);
+        PointConverter converter = new PointConverter();
+        Invoker invoker = factory.invoker(PointConverter.class.getMethod("convert", String.class));
+        invoker.invoke(converter, new Object[]{"1"});
+    }
+
+    /**
+     * 参数个数相同的重载方法分别生成访问器.
+     */
+    @Test
+    public void overloadedAccessors() throws Throwable {
+        GeneratedAccessorFactory factory = new GeneratedAccessorFactory(new ReflectionAccessorFactory());
+        Overloaded overloaded = new Overloaded();
+        Teacher teacher = new Teacher();
+        Student student = new Student();
+        Setter teacherSetter = factory.setter(Overloaded.class.getMethod("set", Teacher.class));
+        Setter studentSetter = factory.setter(Overloaded.class.getMethod("set", Student.class));
+        Assert.assertTrue(teacherSetter.getClass().getName().contains(GeneratedAccessorFactory.SUFFIX));
+        Assert.assertTrue(studentSetter.getClass().getName().contains(GeneratedAccessorFactory.SUFFIX));
+        teacherSetter.set(overloaded, teacher);
+        studentSetter.set(overloaded, student);
+        Assert.assertSame(teacher, overloaded.teacher);
+        Assert.assertSame(student, overloaded.student);
+        factory.setter(Overloaded.class.getMethod("set", String[].class)).set(overloaded, new String[]{"a"});
+        Assert.assertArrayEquals(new String[]{"a"}, overloaded.names);
+    }
+
+    public static class Overloaded {
+        Teacher teacher;
+        Student student;
+        String[] names;
+
+        @Resource
+        public void set(Teacher teacher) {
+            this.teacher = teacher;
+        }
+
+        @Resource
+        public void set(Student student) {
+            this.student = student;
+        }
+
+        @Value(key = "names")
+        public void set(String[] names) {
+            this.names = names;
+        }
+    }
+
+    /**
+     * 持久化的扫描索引: 第一次启动写入，之后读取，内容损坏时重新扫描.
+     */
+    @Test
+    public void scanIndex() throws Exception {
+        Path file = Files.createTempDirectory("configurator").resolve("scan-index");
+        BeanContainer first = new Injector().useIndex(false).scanIndex(file.toString())
+                .basePackage("configurator.ioc").inject();
+        Assert.assertTrue(Files.exists(file));
+        Assert.assertTrue(Files.readAllLines(file).contains(Teacher.class.getName()));
+        BeanContainer second = new Injector().useIndex(false).scanIndex(file.toString())
+                .basePackage("configurator.ioc").inject();
+        Assert.assertEquals(first.getBeansWithType(Student.class).size(),
+                second.getBeansWithType(Student.class).size());
+        Assert.assertNotNull(second.get("teacher"));
+        Files.write(file, "broken".getBytes());
+        BeanContainer third = new Injector().useIndex(false).scanIndex(file.toString())
+                .basePackage("configurator.ioc").inject();
+        Assert.assertNotNull(third.get("teacher"));
+        Assert.assertTrue(Files.readAllLines(file).contains(Teacher.class.getName()));
+    }
+
+    /**
+     * 扫描索引无法替换时(目标是非空目录)照常扫描，并且不留下临时文件.
+     */
+    @Test
+    public void scanIndexWriteFailure() throws Exception {
+        Path dir = Files.createTempDirectory("configurator");
+        Path file = Files.createDirectory(dir.resolve("scan-index"));
+        Files.createFile(file.resolve("occupied"));
+        BeanContainer container = new Injector().useIndex(false).scanIndex(file.toString())
+                .basePackage("configurator.ioc").inject();
+        Assert.assertNotNull(container.get("teacher"));
+        try (Stream<Path> files = Files.list(dir)) {
+            Assert.assertEquals(Collections.singletonList(file), files.collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * 提前并行创建单例，以及环中的回边.
+     */
+    @Test
+    public void eagerInit() throws Exception {
+        CompositeSource source = new CompositeSource();
+        source.registerSource(new JsonSource("etc/conf.json"), new PropertiesSource("etc/db.properties"),
+                new XmlSource("etc/test.xml"));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            BeanContainer container = new Injector().source(source).eagerInit(true)
+                    .eagerInitExecutor(executor).basePackage("configurator.ioc").inject();
+            Map<String, Long> timings = container.getCreationTimings();
+            Assert.assertTrue(timings.containsKey("teacher"));
+            Assert.assertTrue(timings.containsKey("student"));
+            Assert.assertSame(container.get("teacher"), container.get(Student.class).getTeacher());
+
+            container.register(CircularA.class, Scope.SINGLETON);
+            container.register(CircularB.class, Scope.SINGLETON);
+            container.preInstantiateSingletons(executor);
+            CircularA a = container.get(CircularA.class);
+            Assert.assertSame(a, container.get(CircularB.class).circularA);
+            Assert.assertSame(container.get(CircularB.class), a.circularB);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public static class CircularA {
+        @Resource
+        CircularB circularB;
+    }
+
+    public static class CircularB {
+        @Resource
+        CircularA circularA;
+    }
+
     @Test
     public void destroy() {
         Injector injector = new Injector();
@@ -99,4 +325,67 @@ public class IOCTest {
         container.close();
     }
 
+    /**
+     * 注册或销毁{@link TypeConverter}之后不再使用缓存的结果，prototype的转换器每次重新创建.
+     */
+    @Test
+    public void converterCache() throws Exception {
+        Path file = Files.createTempFile("converter", ".properties");
+        try {
+            Files.write(file, "point=3".getBytes(StandardCharsets.ISO_8859_1));
+            BeanContainer container = new Injector().source(new PropertiesSource(file.toString()))
+                    .basePackage("configurator.ioc").inject();
+            container.register(PointHolder.class, Scope.PROTOTYPE);
+            try {
+                container.get(PointHolder.class);
+                Assert.fail();
+            } catch (IllegalStateException ignored) {
+            }
+            container.register(PointConverter.class, Scope.PROTOTYPE);
+            int created = PointConverter.created.get();
+            Assert.assertEquals(3, container.get(PointHolder.class).point.x);
+            Assert.assertEquals(3, container.get(PointHolder.class).point.x);
+            Assert.assertEquals(created + 2, PointConverter.created.get());
+            container.detachBean(PointConverter.class);
+            try {
+                container.get(PointHolder.class);
+                Assert.fail();
+            } catch (IllegalStateException ignored) {
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    public static class Point {
+        final int x;
+
+        Point(int x) {
+            this.x = x;
+        }
+    }
+
+    public static class PointHolder {
+        @Value(key = "point")
+        Point point;
+    }
+
+    public static class PointConverter implements TypeConverter {
+        static final AtomicInteger created = new AtomicInteger();
+
+        public PointConverter() {
+            created.incrementAndGet();
+        }
+
+        @Override
+        public boolean support(Class type) {
+            return (type == Point.class);
+        }
+
+        @Override
+        public Object convert(String value) {
+            return new Point(Integer.parseInt(value));
+        }
+    }
+
 }
@@ -25,6 +25,10 @@ public class Student {
         this.age = 10;
     }
 
+    public Teacher getTeacher() {
+        return teacher;
+    }
+
     @Destroy(order = 1)
     public void end1() {
         System.out.println("学生gg1");
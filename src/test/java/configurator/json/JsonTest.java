@@ -1,13 +1,21 @@
 package configurator.json;
 
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
 import configurator.bean.BeanContainer;
 import configurator.conf.CompositeSource;
 import configurator.conf.JsonSource;
 import configurator.conf.Source;
 import configurator.conf.exception.LoadException;
 import configurator.inject.Injector;
+import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+
 /**
  * 测试{@link configurator.conf.JsonSource}.
  *
@@ -27,4 +35,126 @@ public class JsonTest {
         System.out.println(holder);
     }
 
+    /**
+     * 流式加载与JSONObject加载的结果一致.
+     */
+    @Test
+    public void streaming() throws LoadException {
+        JsonSource dom = new JsonSource("etc/conf.json");
+        JsonSource streaming = new JsonSource("etc/conf.json", true);
+        dom.load();
+        streaming.load();
+        Assert.assertEquals(dom.find(""), streaming.find(""));
+        Assert.assertEquals(dom.find("interval"), streaming.find("interval"));
+        for (String key : new String[]{"ip", "port", "version", "wait_ack", "interval.unit", "loc_ids", "none"}) {
+            Assert.assertEquals(dom.get(key), streaming.get(key));
+        }
+        Assert.assertEquals(dom.getInt("port"), streaming.getInt("port"));
+        Assert.assertEquals(dom.getDouble("version"), streaming.getDouble("version"), 0);
+        Assert.assertEquals(dom.getBoolean("interval.enabled"), streaming.getBoolean("interval.enabled"));
+        Assert.assertArrayEquals(dom.getStringArray("loc_ids"), streaming.getStringArray("loc_ids"));
+        Assert.assertArrayEquals(dom.getStringArray("msisdns"), streaming.getStringArray("msisdns"));
+    }
+
+    /**
+     * 流式加载: 空object、空数组、null值以及重复的key.
+     */
+    @Test
+    public void streamingEdgeCases() throws Exception {
+        File file = File.createTempFile("streaming", ".json");
+        try {
+            Files.write(file.toPath(), ("{\"empty\": {}, \"a\": {\"b\": {\"c\": 1}, \"list\": []}, \"n\": null, " +
+                    "\"dup\": 1, \"dup\": 2}").getBytes(StandardCharsets.UTF_8));
+            JsonSource source = new JsonSource(file.getPath(), true);
+            source.load();
+            Assert.assertEquals(1, source.getInt("a.b.c"));
+            Assert.assertEquals(0, source.getStringArray("a.list").length);
+            Assert.assertNull(source.get("n"));
+            Assert.assertNull(source.get("empty"));
+            Assert.assertEquals("2", source.get("dup"));
+            Map<String, String> all = source.find("");
+            Assert.assertEquals(3, all.size());
+            Assert.assertEquals("", all.get("a.list"));
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * 带"."的成员名及重复的key: 流式加载与默认模式的结果一致.
+     */
+    @Test
+    public void streamingDottedKeys() throws Exception {
+        File file = File.createTempFile("dotted", ".json");
+        try {
+            Files.write(file.toPath(), ("{\"a.b\": 1, \"a\": {\"c\": 2}, \"d\": {\"x\": 1}, \"e.f\": 1, " +
+                    "\"d\": {\"y\": {\"z\": 2}}, \"e.f\": 3, \"g\": {\"h\": 1, \"i.j\": []}, \"g.h\": 2}")
+                    .getBytes(StandardCharsets.UTF_8));
+            JsonSource dom = new JsonSource(file.getPath());
+            JsonSource streaming = new JsonSource(file.getPath(), true);
+            dom.load();
+            streaming.load();
+            Map<String, String> all = streaming.find("");
+            Assert.assertEquals(dom.find("").keySet(), all.keySet());
+            Assert.assertEquals(6, all.size());
+            for (String key : new String[]{"a.b", "a.c", "d.x", "d.y.z", "e.f", "g.i.j"}) {
+                Assert.assertEquals(dom.get(key), streaming.get(key));
+            }
+            Assert.assertEquals(dom.find("a"), streaming.find("a"));
+            Assert.assertEquals(dom.find("d"), streaming.find("d"));
+            //同一个key的多个值以","连接，默认模式下的顺序取决于JSONObject
+            Assert.assertEquals("1,2", streaming.get("g.h"));
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * object节点返回其json文本，两种加载模式一致.
+     */
+    @Test
+    public void objectNode() throws LoadException {
+        for (boolean streaming : new boolean[]{false, true}) {
+            JsonSource source = new JsonSource("etc/conf.json", streaming);
+            source.load();
+            JSONObject interval = JSON.parseObject(source.get("interval"));
+            Assert.assertEquals(3, interval.size());
+            Assert.assertEquals("s", interval.getString("unit"));
+            Assert.assertEquals(10, interval.getIntValue("value"));
+            Assert.assertEquals(false, interval.get("enabled"));
+        }
+    }
+
+    /**
+     * 类型化读取不解析json字符串，前缀搜索不支持非基本类型的数组.
+     */
+    @Test
+    public void jsonTypes() throws Exception {
+        File file = File.createTempFile("types", ".json");
+        try {
+            Files.write(file.toPath(), ("{\"port\": \"8080\", \"flag\": \"true\", \"list\": \"a;b\", " +
+                    "\"a\": {\"points\": [{\"x\": 1}], \"n\": 1}, \"tags\": [\"x\"]}").getBytes(StandardCharsets.UTF_8));
+            for (boolean streaming : new boolean[]{false, true}) {
+                JsonSource source = new JsonSource(file.getPath(), streaming);
+                source.load();
+                Assert.assertEquals("8080", source.get("port"));
+                for (Runnable read : new Runnable[]{() -> source.getInt("port"), () -> source.getLong("port"),
+                        () -> source.getDouble("port"), () -> source.getBoolean("flag"),
+                        () -> source.getStringArray("tags", ";"), () -> source.find("a"), () -> source.find("")}) {
+                    try {
+                        read.run();
+                        Assert.fail("Json type should be checked.");
+                    } catch (IllegalStateException ignored) {
+                    }
+                }
+                Assert.assertArrayEquals(new String[]{"a", "b"}, source.getStringArray("list", ";"));
+                Assert.assertEquals(1, source.getLong("a.n"));
+                Assert.assertEquals(JSON.parse("{\"points\":[{\"x\":1}],\"n\":1}"), JSON.parse(source.get("a")));
+                Assert.assertEquals(1, source.find("tags").size());
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
 }
@@ -17,6 +17,18 @@ public class DB {
     @Value(key = "db.*")
     private Map<String, String> all;
 
+    public String getUsername() {
+        return username;
+    }
+
+    public int getPassword() {
+        return password;
+    }
+
+    public Map<String, String> getAll() {
+        return all;
+    }
+
     @Override
     public String toString() {
         return "DB{" +
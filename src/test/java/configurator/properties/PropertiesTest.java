@@ -1,12 +1,38 @@
 package configurator.properties;
 
 import configurator.bean.BeanContainer;
+import configurator.bean.annotation.Component;
+import configurator.bean.annotation.Init;
+import configurator.bean.annotation.Value;
+import configurator.conf.AbstractTreeBasedSource;
+import configurator.conf.ChangeNotifier;
+import configurator.conf.CompositeSource;
+import configurator.conf.ConfigChangeEvent;
+import configurator.conf.ConfigChangeListener;
+import configurator.conf.ConfigKey;
 import configurator.conf.Source;
 import configurator.conf.PropertiesSource;
+import configurator.conf.SourceWatcher;
 import configurator.conf.exception.LoadException;
 import configurator.inject.Injector;
+import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
 /**
  * 测试从属性文件中加载配置.
  *
@@ -23,4 +49,470 @@ public class PropertiesTest {
         System.out.println(db);
     }
 
+    /**
+     * {@link ConfigKey}在重新加载之后读取到新的值.
+     */
+    @Test
+    public void configKey() throws IOException, LoadException {
+        File file = File.createTempFile("key", ".properties");
+        try {
+            Files.write(file.toPath(), "db.port=3306\ndb.name=stories\n".getBytes(StandardCharsets.ISO_8859_1));
+            Source source = new PropertiesSource(file.getPath());
+            ConfigKey<Integer> port = source.key("db.port", int.class);
+            ConfigKey<String> name = source.key("db.name", String.class);
+            Assert.assertNull(name.get());
+            source.load();
+            Assert.assertEquals(Integer.valueOf(3306), port.get());
+            Assert.assertEquals(3306L, port.getLong());
+            Assert.assertEquals("stories", name.get());
+            Files.write(file.toPath(), "db.port=3307\n".getBytes(StandardCharsets.ISO_8859_1));
+            source.load();
+            Assert.assertEquals(3307, port.getInt());
+            Assert.assertNull(name.get());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unsupportedKeyType() {
+        new PropertiesSource("etc/db.properties").key("db.name", Object.class);
+    }
+
+    /**
+     * {@link CompositeSource}的合并索引: 前面的来源优先，子来源重新加载之后索引重建.
+     */
+    @Test
+    public void compositeIndex() throws IOException, LoadException {
+        File first = File.createTempFile("first", ".properties");
+        File second = File.createTempFile("second", ".properties");
+        try {
+            Files.write(first.toPath(), "db.port=3306\ndb.pool.size=8\n".getBytes(StandardCharsets.ISO_8859_1));
+            Files.write(second.toPath(), "db.port=3307\ndb.name=stories\n".getBytes(StandardCharsets.ISO_8859_1));
+            PropertiesSource firstSource = new PropertiesSource(first.getPath());
+            CompositeSource source = new CompositeSource();
+            source.registerSource(firstSource, new PropertiesSource(second.getPath()));
+            source.load();
+            Assert.assertEquals(3306, source.getInt("db.port"));
+            Assert.assertEquals("stories", source.get("db.name"));
+            Assert.assertEquals("8", source.get("db.pool.size"));
+            Assert.assertNull(source.get("db.none"));
+            Assert.assertFalse(source.contains("db.pool.size.none"));
+            Map<String, String> found = source.find("db");
+            Assert.assertEquals(3, found.size());
+            Assert.assertEquals("3306", found.get("db.port"));
+            CompositeSource nested = new CompositeSource();
+            PropertiesSource db = new PropertiesSource("etc/db.properties");
+            Assert.assertTrue(db.find("*").isEmpty());
+            db.load();
+            nested.registerSource(source, db);
+            Assert.assertEquals("3306", nested.find("*").get("db.port"));
+            Assert.assertEquals("\"skywalker\"", nested.find("*").get("db.username"));
+            try {
+                source.get("db.pool");
+                Assert.fail();
+            } catch (IllegalStateException e) {
+                //非叶子节点
+            }
+            Files.write(first.toPath(), "db.name=configurator\n".getBytes(StandardCharsets.ISO_8859_1));
+            firstSource.load();
+            Assert.assertEquals(3307, source.getInt("db.port"));
+            Assert.assertEquals("configurator", source.get("db.name"));
+            Assert.assertNull(source.get("db.pool.size"));
+        } finally {
+            first.delete();
+            second.delete();
+        }
+    }
+
+    /**
+     * 并行加载: 查找顺序不变，失败时指明来源.
+     */
+    @Test
+    public void parallelLoad() throws IOException, LoadException {
+        File first = File.createTempFile("first", ".properties");
+        File second = File.createTempFile("second", ".properties");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Files.write(first.toPath(), "db.port=3306\n".getBytes(StandardCharsets.ISO_8859_1));
+            Files.write(second.toPath(), "db.port=3307\ndb.name=stories\n".getBytes(StandardCharsets.ISO_8859_1));
+            CompositeSource source = new CompositeSource();
+            source.setLoadExecutor(executor);
+            source.registerSource(new PropertiesSource(first.getPath()), new PropertiesSource(second.getPath()));
+            source.load();
+            Assert.assertEquals(3306, source.getInt("db.port"));
+            Assert.assertEquals("stories", source.get("db.name"));
+            PropertiesSource missing = new PropertiesSource(first.getPath() + ".none");
+            source.registerSource(missing);
+            try {
+                source.load();
+                Assert.fail();
+            } catch (LoadException e) {
+                Assert.assertTrue(e.getMessage().contains(missing.toString()));
+            }
+        } finally {
+            executor.shutdown();
+            first.delete();
+            second.delete();
+        }
+    }
+
+    /**
+     * 重新加载: 版本号递增，读取方始终看到完整的配置，加载失败时保留原来的配置.
+     */
+    @Test
+    public void reload() throws Exception {
+        File file = File.createTempFile("reload", ".properties");
+        try {
+            Files.write(file.toPath(), "a=1\nb=1\n".getBytes(StandardCharsets.ISO_8859_1));
+            PropertiesSource source = new PropertiesSource(file.getPath());
+            CompositeSource composite = new CompositeSource();
+            composite.registerSource(source);
+            Assert.assertEquals(0, source.getVersion());
+            composite.load();
+            Assert.assertEquals(1, source.getVersion());
+            Assert.assertEquals(1, composite.getVersion());
+            AtomicBoolean torn = new AtomicBoolean();
+            Thread reader = new Thread(() -> {
+                while (!Thread.currentThread().isInterrupted()) {
+                    //一次find读取的是同一棵树
+                    Map<String, String> all = source.find("");
+                    if (!all.get("a").equals(all.get("b"))) {
+                        torn.set(true);
+                    }
+                }
+            });
+            reader.start();
+            for (int i = 2; i <= 20; i++) {
+                Files.write(file.toPath(), ("a=" + i + "\nb=" + i + "\n").getBytes(StandardCharsets.ISO_8859_1));
+                source.load();
+            }
+            reader.interrupt();
+            reader.join();
+            Assert.assertFalse(torn.get());
+            Assert.assertEquals(20, source.getVersion());
+            Assert.assertEquals(20, composite.getVersion());
+            Assert.assertEquals(20, composite.getInt("a"));
+            Assert.assertTrue(file.delete());
+            try {
+                composite.load();
+                Assert.fail();
+            } catch (LoadException e) {
+                Assert.assertEquals(20, composite.getVersion());
+                Assert.assertEquals(20, composite.getInt("b"));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * 文件变化之后只重新加载对应的来源，连续的修改合并为一次.
+     */
+    @Test
+    public void watch() throws Exception {
+        File directory = Files.createTempDirectory("watch").toFile();
+        File first = new File(directory, "first.properties");
+        File second = new File(directory, "second.properties");
+        try (SourceWatcher watcher = new SourceWatcher(100)) {
+            Files.write(first.toPath(), "a=1\n".getBytes(StandardCharsets.ISO_8859_1));
+            Files.write(second.toPath(), "b=1\n".getBytes(StandardCharsets.ISO_8859_1));
+            PropertiesSource firstSource = new PropertiesSource(first.getPath());
+            PropertiesSource secondSource = new PropertiesSource(second.getPath());
+            CompositeSource composite = new CompositeSource();
+            composite.registerSource(firstSource, secondSource);
+            composite.load();
+            watcher.watch(composite);
+            for (int i = 2; i <= 5; i++) {
+                Files.write(first.toPath(), ("a=" + i + "\n").getBytes(StandardCharsets.ISO_8859_1));
+            }
+            long deadline = System.currentTimeMillis() + 10000;
+            //写入不是原子的，重新加载可能读到被截断的文件(a不存在)，写入完成之后会再次重新加载
+            while (!"5".equals(composite.get("a")) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(5, composite.getInt("a"));
+            Assert.assertTrue(firstSource.getVersion() >= 2);
+            Assert.assertEquals(1, secondSource.getVersion());
+        } finally {
+            first.delete();
+            second.delete();
+            directory.delete();
+        }
+    }
+
+    /**
+     * 重新加载抛出{@link LinkageError}(比如新配置引用的类缺失)时交给errorHandler，监听线程继续运行.
+     */
+    @Test
+    public void watchFailure() throws Exception {
+        File file = File.createTempFile("watch", ".properties");
+        AtomicBoolean broken = new AtomicBoolean();
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+        try (SourceWatcher watcher = new SourceWatcher(50)) {
+            Files.write(file.toPath(), "a=1\n".getBytes(StandardCharsets.ISO_8859_1));
+            PropertiesSource source = new PropertiesSource(file.getPath()) {
+
+                @Override
+                public void load() throws LoadException {
+                    if (broken.getAndSet(false)) {
+                        throw new NoClassDefFoundError("broken");
+                    }
+                    super.load();
+                }
+
+            };
+            source.load();
+            watcher.setErrorHandler((s, e) -> failures.add(e));
+            watcher.watch(source);
+            broken.set(true);
+            Files.write(file.toPath(), "a=2\n".getBytes(StandardCharsets.ISO_8859_1));
+            long deadline = System.currentTimeMillis() + 10000;
+            while (failures.isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assert.assertTrue(failures.get(0) instanceof NoClassDefFoundError);
+            Files.write(file.toPath(), "a=3\n".getBytes(StandardCharsets.ISO_8859_1));
+            while (!"3".equals(source.get("a")) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals("3", source.get("a"));
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * 重新加载之后只重新注入值发生变化的注入点.
+     */
+    @Test
+    public void refresh() throws IOException, LoadException {
+        File file = File.createTempFile("refresh", ".properties");
+        try {
+            Files.write(file.toPath(), "db.username=skywalker\ndb.password=123\ndb.name=stories\n"
+                    .getBytes(StandardCharsets.ISO_8859_1));
+            Source source = new PropertiesSource(file.getPath());
+            BeanContainer beanContainer = new Injector().basePackage("configurator.properties").source(source).inject();
+            DB db = beanContainer.get(DB.class);
+            String username = db.getUsername();
+            Assert.assertEquals(123, db.getPassword());
+            Files.write(file.toPath(), "db.username=skywalker\ndb.password=456\ndb.name=stories\n"
+                    .getBytes(StandardCharsets.ISO_8859_1));
+            source.load();
+            Assert.assertEquals(456, db.getPassword());
+            Assert.assertEquals("456", db.getAll().get("db.password"));
+            //未变化的注入点没有重新注入
+            Assert.assertSame(username, db.getUsername());
+            Assert.assertTrue(beanContainer.refresh().isEmpty());
+            Files.write(file.toPath(), "db.username=skywalker\ndb.password=789\ndb.name=stories\n"
+                    .getBytes(StandardCharsets.ISO_8859_1));
+            beanContainer.close();
+            source.load();
+            Assert.assertEquals(456, db.getPassword());
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * 单例创建期间(注入之后、发布之前)重新加载，注入点不会丢失，发布时立即更新.
+     */
+    @Test
+    public void refreshDuringCreation() throws Exception {
+        File file = File.createTempFile("refresh", ".properties");
+        try {
+            Files.write(file.toPath(), "reload.name=a\n".getBytes(StandardCharsets.ISO_8859_1));
+            PropertiesSource source = new PropertiesSource(file.getPath());
+            source.load();
+            BeanContainer beanContainer = new BeanContainer(source, false);
+            beanContainer.register(Reloading.class);
+            Reloading.onInit = () -> {
+                try {
+                    Files.write(file.toPath(), "reload.name=b\n".getBytes(StandardCharsets.ISO_8859_1));
+                    source.load();
+                } catch (IOException | LoadException e) {
+                    throw new IllegalStateException(e);
+                }
+            };
+            Reloading reloading = beanContainer.get(Reloading.class);
+            Assert.assertEquals("b", reloading.name);
+            Files.write(file.toPath(), "reload.name=c\n".getBytes(StandardCharsets.ISO_8859_1));
+            source.load();
+            Assert.assertEquals("c", reloading.name);
+        } finally {
+            Reloading.onInit = null;
+            file.delete();
+        }
+    }
+
+    /**
+     * 按前缀订阅配置变化，来不及分发的事件被合并.
+     */
+    @Test
+    public void changeNotifier() throws Exception {
+        File file = File.createTempFile("change", ".properties");
+        try {
+            Files.write(file.toPath(), "db.url=a\ndb.user=root\nname=x\n".getBytes(StandardCharsets.ISO_8859_1));
+            PropertiesSource source = new PropertiesSource(file.getPath());
+            source.load();
+            Deque<Runnable> tasks = new ArrayDeque<>();
+            List<ConfigChangeEvent> dbEvents = new ArrayList<>(), allEvents = new ArrayList<>();
+            try (ChangeNotifier notifier = new ChangeNotifier(source, tasks::add)) {
+                notifier.subscribe("db.*", dbEvents::add);
+                notifier.subscribe("", allEvents::add);
+                Files.write(file.toPath(), "db.url=b\ndb.user=root\nname=y\n".getBytes(StandardCharsets.ISO_8859_1));
+                source.load();
+                //尚未分发，与上一次合并
+                Files.write(file.toPath(), "db.url=c\ndb.user=root\nname=x\n".getBytes(StandardCharsets.ISO_8859_1));
+                source.load();
+                Assert.assertEquals(2, tasks.size());
+                tasks.forEach(Runnable::run);
+                tasks.clear();
+                Assert.assertEquals(1, dbEvents.size());
+                ConfigChangeEvent event = dbEvents.get(0);
+                Assert.assertEquals("db", event.getPrefix());
+                Assert.assertEquals(Collections.singleton("db.url"), event.getChangedKeys());
+                Assert.assertEquals("a", event.getOldValue("db.url"));
+                Assert.assertEquals("c", event.getNewValue("db.url"));
+                Assert.assertEquals(3, event.getVersion());
+                //name变回了原来的值
+                Assert.assertEquals(Collections.singleton("db.url"), allEvents.get(0).getChangedKeys());
+                Files.write(file.toPath(), "db.url=c\nname=z\n".getBytes(StandardCharsets.ISO_8859_1));
+                source.load();
+                tasks.forEach(Runnable::run);
+                Assert.assertEquals(2, dbEvents.size());
+                Assert.assertEquals("root", dbEvents.get(1).getOldValue("db.user"));
+                Assert.assertNull(dbEvents.get(1).getNewValue("db.user"));
+                Assert.assertEquals(new HashSet<>(Arrays.asList("db.user", "name")), allEvents.get(1).getChangedKeys());
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * 取消订阅不重新读取配置，已经加载但尚未通知的变化仍然分发给其它订阅者.
+     */
+    @Test
+    public void unsubscribeKeepsChanges() throws Exception {
+        File file = File.createTempFile("unsubscribe", ".properties");
+        try {
+            Files.write(file.toPath(), "db.url=a\nname=x\n".getBytes(StandardCharsets.ISO_8859_1));
+            PropertiesSource source = new PropertiesSource(file.getPath());
+            source.load();
+            List<ConfigChangeEvent> dbEvents = new ArrayList<>();
+            ConfigChangeListener all = event -> {
+            };
+            AtomicReference<ChangeNotifier> current = new AtomicReference<>();
+            //先于ChangeNotifier收到重新加载的通知，此时新的配置已经可见
+            source.addReloadListener(s -> current.get().unsubscribe("", all));
+            try (ChangeNotifier notifier = new ChangeNotifier(source, Runnable::run)) {
+                current.set(notifier);
+                notifier.subscribe("db", dbEvents::add);
+                notifier.subscribe("", all);
+                Files.write(file.toPath(), "db.url=b\nname=y\n".getBytes(StandardCharsets.ISO_8859_1));
+                source.load();
+                Assert.assertEquals(1, dbEvents.size());
+                Assert.assertEquals(Collections.singleton("db.url"), dbEvents.get(0).getChangedKeys());
+                Assert.assertEquals("a", dbEvents.get(0).getOldValue("db.url"));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * 订阅者抛出的异常默认被记录，之后的变化照常分发.
+     */
+    @Test
+    public void changeNotifierFailure() throws Exception {
+        File file = File.createTempFile("change", ".properties");
+        Logger logger = Logger.getLogger(ChangeNotifier.class.getName());
+        List<LogRecord> records = new ArrayList<>();
+        Handler handler = new Handler() {
+
+            @Override
+            public void publish(LogRecord record) {
+                records.add(record);
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+
+        };
+        logger.addHandler(handler);
+        try {
+            Files.write(file.toPath(), "name=x\n".getBytes(StandardCharsets.ISO_8859_1));
+            PropertiesSource source = new PropertiesSource(file.getPath());
+            source.load();
+            List<ConfigChangeEvent> events = new ArrayList<>();
+            try (ChangeNotifier notifier = new ChangeNotifier(source, Runnable::run)) {
+                notifier.subscribe("", event -> {
+                    events.add(event);
+                    if (events.size() == 1) {
+                        throw new IllegalStateException("broken");
+                    }
+                });
+                Files.write(file.toPath(), "name=y\n".getBytes(StandardCharsets.ISO_8859_1));
+                source.load();
+                Assert.assertEquals(1, records.size());
+                Assert.assertEquals(Level.WARNING, records.get(0).getLevel());
+                Assert.assertEquals("broken", records.get(0).getThrown().getMessage());
+                Files.write(file.toPath(), "name=z\n".getBytes(StandardCharsets.ISO_8859_1));
+                source.load();
+                Assert.assertEquals(2, events.size());
+                Assert.assertEquals("z", events.get(1).getNewValue("name"));
+            }
+        } finally {
+            logger.removeHandler(handler);
+            file.delete();
+        }
+    }
+
+    /**
+     * 像以前一样覆盖load()并直接写入holder的子类仍然可用，包括在{@link CompositeSource}中.
+     */
+    @Test
+    public void customLoad() throws LoadException {
+        AbstractTreeBasedSource custom = new AbstractTreeBasedSource("custom") {
+
+            @Override
+            public void load() {
+                holder.addValue("custom.name", "value");
+            }
+
+            @Override
+            public String get(String key) {
+                return holder.get(key);
+            }
+
+        };
+        CompositeSource composite = new CompositeSource();
+        composite.registerSource(custom, new PropertiesSource("etc/db.properties"));
+        composite.load();
+        Assert.assertEquals("value", composite.get("custom.name"));
+        Assert.assertEquals("value", custom.find("custom").get("custom.name"));
+        Assert.assertNotNull(composite.get("db.name"));
+    }
+
+    @Component
+    public static class Reloading {
+
+        static Runnable onInit;
+
+        @Value(key = "reload.name")
+        private String name;
+
+        @Init
+        public void init() {
+            onInit.run();
+        }
+
+    }
+
 }
@@ -1,8 +1,15 @@
 package configurator.trietree;
 
+import configurator.conf.StringPool;
 import configurator.conf.TrieTree;
+import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * 测试{@link configurator.conf.TrieTree}.
  *
@@ -91,4 +98,205 @@ public class TrieTreeTest {
         tree.addMetaData("key", null, "");
     }
 
+    /**
+     * 大量子节点(触发扩容)、末尾的分隔符以及前缀搜索的顺序.
+     */
+    @Test
+    public void manyChildren() {
+        for (int i = 0; i < 100; i++) {
+            tree.addValue("root.child" + i + ".leaf", String.valueOf(i));
+        }
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(String.valueOf(i), tree.get("root.child" + i + ".leaf"));
+        }
+        Assert.assertEquals("7", tree.get("root.child7.leaf."));
+        Assert.assertNull(tree.get("root.child100.leaf"));
+        Assert.assertNull(tree.get("root.child1.lea"));
+        Map<String, String> found = tree.find("root");
+        Assert.assertEquals(100, found.size());
+        Assert.assertEquals("root.child0.leaf", found.keySet().iterator().next());
+    }
+
+    /**
+     * 同名元信息覆盖旧值并保持第一次添加的顺序.
+     */
+    @Test
+    public void overwriteMetaData() {
+        tree.addValue("china.name", "China");
+        tree.addMetaData("china.name", "continent", "Asia");
+        tree.addMetaData("china.name", "size", "big");
+        tree.addMetaData("china.name", "continent", "Eurasia");
+        Assert.assertEquals("Eurasia", tree.getMetaData("china.name", "continent"));
+        Assert.assertEquals("China{continent=Eurasia, size=big}", tree.find("china").get("china.name"));
+    }
+
+    /**
+     * 字符串去重池: 重复的段及短值共享同一个实例.
+     */
+    @Test
+    public void stringPool() {
+        StringPool pool = new StringPool(16);
+        tree.setStringPool(pool);
+        for (int i = 0; i < 10; i++) {
+            tree.addValue("tenant" + i + ".db.host", new String("localhost"));
+            tree.addValue("tenant" + i + ".db.url", new String("jdbc:mysql://localhost:3306/tenant"));
+        }
+        Assert.assertSame(tree.get("tenant0.db.host"), tree.get("tenant9.db.host"));
+        Assert.assertNotSame(tree.get("tenant0.db.url"), tree.get("tenant9.db.url"));
+        Assert.assertEquals(9 * 4, pool.getHits());
+        Assert.assertTrue(pool.getSavedBytes() > 0);
+        tree.freeze();
+        Assert.assertEquals("localhost", tree.get("tenant5.db.host"));
+        //超过上限时按段清空，大小不会无限增长
+        StringPool bounded = new StringPool(16, 64);
+        for (int i = 0; i < 10000; i++) {
+            Assert.assertEquals("v" + i, bounded.intern("v" + i));
+        }
+        Assert.assertTrue(bounded.size() <= 64);
+    }
+
+    /**
+     * 测试当key只包含空白字符的时候.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void blankKey() {
+        tree.get(" \t");
+    }
+
+    /**
+     * 冻结前后的查找结果一致.
+     */
+    @Test
+    public void freeze() {
+        TrieTree frozen = new TrieTree();
+        for (TrieTree t : new TrieTree[]{tree, frozen}) {
+            t.addValue("china.name", "China");
+            t.addValue("china.leader", "习近平");
+            t.addValue("china.leader", "TG");
+            t.addValue("us.leader", "Obama");
+            t.addMetaData("us.leader", "color", "black");
+            t.addMetaDataBatch("china", new String[]{"continent", "size"}, new String[]{"Asia", "big"});
+            t.addValue("a..b", "empty");
+            for (int i = 0; i < 50; i++) {
+                t.addValue("deep.level1.level2.key" + i, String.valueOf(i));
+            }
+        }
+        frozen.freeze();
+        Assert.assertTrue(frozen.isFrozen());
+        for (String key : new String[]{"china.name", "china.leader", "us.leader", "us.leader.", "a..b", "a.b",
+                "deep.level1.level2.key49", "deep.level1.level2.key50", "china.nam", "hina.name"}) {
+            Assert.assertEquals(tree.get(key), frozen.get(key));
+        }
+        Assert.assertEquals(tree.getMetaData("china", "size"), frozen.getMetaData("china", "size"));
+        Assert.assertEquals(tree.getMetaData("us.leader", "color"), frozen.getMetaData("us.leader", "color"));
+        Assert.assertNull(frozen.getMetaData("us.leader", "size"));
+        for (String prefix : new String[]{"", "china", "us.leader", "deep.level1", "none"}) {
+            Assert.assertEquals(new ArrayList<>(tree.find(prefix).entrySet()),
+                    new ArrayList<>(frozen.find(prefix).entrySet()));
+        }
+    }
+
+    /**
+     * 冻结之后不能再添加.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void addAfterFreeze() {
+        tree.addValue("china.name", "China");
+        tree.freeze();
+        tree.addValue("china.leader", "TG");
+    }
+
+    /**
+     * 冻结之后只支持叶子节点的get.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void getInnerAfterFreeze() {
+        tree.addValue("china.name", "China");
+        tree.freeze();
+        tree.get("china");
+    }
+
+    /**
+     * 冻结之后的类型化读取: 缓存的结果与直接解析一致，解析失败时抛出相同的异常.
+     */
+    @Test
+    public void typedValues() {
+        tree.addValue("server.port", "8080");
+        tree.addValue("server.timeout", "3000000000");
+        tree.addValue("server.ratio", "0.75");
+        tree.addValue("server.enabled", "TRUE");
+        tree.addValue("server.name", "web");
+        tree.freeze();
+        for (int i = 0; i < 2; i++) {
+            Assert.assertEquals(8080, tree.getInt("server.port"));
+            Assert.assertEquals(8080.0, tree.getDouble("server.port"), 0);
+            Assert.assertEquals(3000000000L, tree.getLong("server.timeout"));
+            Assert.assertEquals(0.75, tree.getDouble("server.ratio"), 0);
+            Assert.assertTrue(tree.getBoolean("server.enabled"));
+            Assert.assertFalse(tree.getBoolean("server.name"));
+            Assert.assertFalse(tree.getBoolean("server.none"));
+            for (String key : new String[]{"server.timeout", "server.name", "server.none"}) {
+                try {
+                    tree.getInt(key);
+                    Assert.fail();
+                } catch (NumberFormatException e) {
+                    try {
+                        Integer.parseInt(tree.get(key));
+                    } catch (NumberFormatException expected) {
+                        Assert.assertEquals(expected.getMessage(), e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 类型化读取的key远多于缓存的初始容量时，扩容之后之前缓存的结果仍然正确.
+     */
+    @Test
+    public void typedValuesResize() {
+        for (int i = 0; i < 100; i++) {
+            tree.addValue("key" + i + ".int", String.valueOf(i));
+            tree.addValue("key" + i + ".flag", String.valueOf(i % 2 == 0));
+        }
+        tree.freeze();
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < 100; i++) {
+                Assert.assertEquals(i, tree.getInt("key" + i + ".int"));
+                Assert.assertEquals(i, tree.getDouble("key" + i + ".int"), 0);
+                Assert.assertEquals(i % 2 == 0, tree.getBoolean("key" + i + ".flag"));
+            }
+        }
+    }
+
+    /**
+     * 流式前缀搜索与{@link TrieTree#find(String)}的结果及顺序一致(冻结前后).
+     */
+    @Test
+    public void forEach() {
+        TrieTree frozen = new TrieTree();
+        for (TrieTree t : new TrieTree[]{tree, frozen}) {
+            t.addValue("china.name", "China");
+            t.addMetaData("china", "size", "big");
+            t.addValue("china.city.capital", "Beijing");
+            t.addValue("china.city.largest", "Shanghai");
+            t.addValue(".hidden", "dot");
+            t.addValue("us.leader", "Trump");
+            t.addMetaData("us.leader", "color", "white");
+        }
+        frozen.freeze();
+        for (TrieTree t : new TrieTree[]{tree, frozen}) {
+            for (String prefix : new String[]{"", "china", "china.", "china.city", "us.leader", "none"}) {
+                Map<String, String> visited = new LinkedHashMap<>();
+                t.forEach(prefix, visited::put);
+                Assert.assertEquals(new ArrayList<>(t.find(prefix).entrySet()), new ArrayList<>(visited.entrySet()));
+            }
+        }
+        List<String> keys = new ArrayList<>();
+        frozen.forEach("", (key, value) -> keys.add(key));
+        Assert.assertEquals("[china, china.name, china.city.capital, china.city.largest, .hidden, us.leader]",
+                keys.toString());
+        Assert.assertEquals(new ArrayList<>(tree.find("").entrySet()), new ArrayList<>(frozen.find("").entrySet()));
+    }
+
 }
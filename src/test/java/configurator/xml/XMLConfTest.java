@@ -6,8 +6,18 @@ import configurator.conf.Source;
 import configurator.conf.XmlSource;
 import configurator.conf.exception.LoadException;
 import configurator.inject.Injector;
+import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
 /**
  * 测试XML配置的导入.
  *
@@ -27,4 +37,128 @@ public class XMLConfTest {
         System.out.println(reporter);
     }
 
+    /**
+     * 流式加载与DOM加载的结果一致.
+     */
+    @Test
+    public void streaming() throws Exception {
+        File file = File.createTempFile("streaming", ".xml");
+        try {
+            String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n" +
+                    "<!DOCTYPE root [<!ENTITY company \"ACME\">]>\n" +
+                    "<root version=\"1\">ignored\n" +
+                    "    <owner name=\"&company;\">&company; Inc</owner>\n" +
+                    "    <server port=\"8080\" host=\"localhost\">\n" +
+                    "        <!-- comment -->\n" +
+                    "        <name> main &amp; backup </name>\n" +
+                    "        <alias>a</alias>\n" +
+                    "        <alias>b</alias>\n" +
+                    "        <script><![CDATA[a < b]]></script>\n" +
+                    "        <empty enabled=\"false\"/>\n" +
+                    "    </server>\n" +
+                    "    <deep><a><b><c z=\"1\" y=\"2\">value</c></b></a></deep>\n" +
+                    "</root>";
+            Files.write(file.toPath(), xml.getBytes(StandardCharsets.UTF_8));
+            for (String path : new String[]{file.getPath(), "etc/test.xml"}) {
+                XmlSource dom = new XmlSource(path);
+                XmlSource streaming = new XmlSource(path, true);
+                dom.load();
+                streaming.load();
+                Assert.assertEquals(new ArrayList<>(dom.find("").entrySet()),
+                        new ArrayList<>(streaming.find("").entrySet()));
+            }
+            XmlSource streaming = new XmlSource(file.getPath(), true);
+            streaming.load();
+            Assert.assertEquals("main & backup", streaming.get("root.server.name"));
+            Assert.assertEquals("a,b", streaming.get("root.server.alias"));
+            Assert.assertEquals("a < b", streaming.get("root.server.script"));
+            Assert.assertEquals("8080", streaming.get("root.server#port"));
+            Assert.assertEquals("2", streaming.get("root.deep.a.b.c#y"));
+            Assert.assertNull(streaming.get("root#version"));
+            Assert.assertEquals("ACME Inc", streaming.get("root.owner"));
+            Assert.assertEquals("ACME", streaming.get("root.owner#name"));
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * 快照与直接加载的结果一致，配置文件内容未变时不重新生成.
+     */
+    @Test
+    public void snapshot() throws Exception {
+        File file = File.createTempFile("snapshot", ".xml");
+        File snapshot = new File(file.getPath() + ".snapshot");
+        try {
+            Files.write(file.toPath(), Files.readAllBytes(new File("etc/test.xml").toPath()));
+            XmlSource expected = new XmlSource(file.getPath());
+            expected.load();
+            XmlSource source = new XmlSource(file.getPath());
+            source.setSnapshotPath(snapshot.getPath());
+            source.load();
+            Assert.assertTrue(snapshot.isFile());
+            FileTime generated = FileTime.fromMillis(System.currentTimeMillis() - 60000);
+            Files.setLastModifiedTime(snapshot.toPath(), generated);
+            //修改时间变化，内容不变
+            Files.setLastModifiedTime(file.toPath(), FileTime.fromMillis(System.currentTimeMillis() - 30000));
+            source = new XmlSource(file.getPath());
+            source.setSnapshotPath(snapshot.getPath());
+            source.load();
+            Assert.assertEquals(generated, Files.getLastModifiedTime(snapshot.toPath()));
+            Assert.assertEquals(new ArrayList<>(expected.find("").entrySet()),
+                    new ArrayList<>(source.find("").entrySet()));
+            Assert.assertEquals(expected.get("china.area#ranking"), source.get("china.area#ranking"));
+            Assert.assertEquals(expected.getInt("china.phone"), source.getInt("china.phone"));
+            Files.write(file.toPath(), "<root><a x=\"1\">b</a></root>".getBytes(StandardCharsets.UTF_8));
+            source.load();
+            Assert.assertNotEquals(generated, Files.getLastModifiedTime(snapshot.toPath()));
+            Assert.assertEquals("b", source.get("root.a"));
+            Assert.assertEquals("1", source.get("root.a#x"));
+            Assert.assertNull(source.get("china.phone"));
+        } finally {
+            file.delete();
+            snapshot.delete();
+        }
+    }
+
+    /**
+     * 截断、损坏以及长度字段越界(校验和正确)的快照都视为不存在，重新解析并覆盖.
+     */
+    @Test
+    public void corruptedSnapshot() throws Exception {
+        File file = File.createTempFile("snapshot", ".xml");
+        File snapshot = new File(file.getPath() + ".snapshot");
+        try {
+            Files.write(file.toPath(), Files.readAllBytes(new File("etc/test.xml").toPath()));
+            XmlSource expected = new XmlSource(file.getPath());
+            expected.load();
+            XmlSource source = new XmlSource(file.getPath());
+            source.setSnapshotPath(snapshot.getPath());
+            source.load();
+            byte[] valid = Files.readAllBytes(snapshot.toPath());
+            byte[] flipped = valid.clone();
+            flipped[flipped.length / 2] ^= 0x10;
+            byte[] truncated = Arrays.copyOf(valid, valid.length / 2);
+            //nodeCount位于magic、版本、kind以及三个long之后
+            byte[] oversized = valid.clone();
+            int nodeCount = 12 + ByteBuffer.wrap(valid).getInt(8) + 24;
+            ByteBuffer.wrap(oversized).putInt(nodeCount, Integer.MAX_VALUE);
+            CRC32 crc32 = new CRC32();
+            crc32.update(oversized, 0, oversized.length - 8);
+            ByteBuffer.wrap(oversized).putLong(oversized.length - 8, crc32.getValue());
+            for (byte[] corrupted : new byte[][]{flipped, truncated, oversized, new byte[0]}) {
+                Files.write(snapshot.toPath(), corrupted);
+                source = new XmlSource(file.getPath());
+                source.setSnapshotPath(snapshot.getPath());
+                source.load();
+                Assert.assertEquals(new ArrayList<>(expected.find("").entrySet()),
+                        new ArrayList<>(source.find("").entrySet()));
+                Assert.assertArrayEquals(valid, Files.readAllBytes(snapshot.toPath()));
+            }
+        } finally {
+            file.delete();
+            snapshot.delete();
+        }
+    }
+
 }